@@ -156,6 +156,13 @@ public final class DefenceField {
         return 60;
     }
 
+    /**
+     * @return The number of layers, in blocks, above the ground that enemies can travel through
+     */
+    public static int fieldHeight() {
+        return 8;
+    }
+
     /**
      * @return The size, in blocks, of the clear zone around each entrance
      */
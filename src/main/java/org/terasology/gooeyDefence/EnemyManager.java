@@ -20,19 +20,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.entitySystem.event.EventPriority;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterSystem;
-import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.gooeyDefence.components.enemies.BlankPathComponent;
+import org.terasology.gooeyDefence.components.enemies.CustomPathComponent;
 import org.terasology.gooeyDefence.components.enemies.EntrancePathComponent;
 import org.terasology.gooeyDefence.components.enemies.GooeyComponent;
 import org.terasology.gooeyDefence.components.enemies.MovementComponent;
 import org.terasology.gooeyDefence.components.enemies.PathComponent;
+import org.terasology.gooeyDefence.components.towers.TowerComponent;
 import org.terasology.gooeyDefence.events.OnEntrancePathChanged;
 import org.terasology.gooeyDefence.events.OnFieldActivated;
 import org.terasology.gooeyDefence.events.RepathEnemyRequest;
 import org.terasology.gooeyDefence.events.health.DamageEntityEvent;
 import org.terasology.gooeyDefence.events.health.EntityDeathEvent;
+import org.terasology.gooeyDefence.events.tower.TowerChangedEvent;
+import org.terasology.gooeyDefence.events.tower.TowerDestroyedEvent;
+import org.terasology.gooeyDefence.health.HealthComponent;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.gooeyDefence.pathfinding.PathPolyline;
+import org.terasology.gooeyDefence.simulation.CoverageListener;
+import org.terasology.gooeyDefence.simulation.CoverageWatchers;
+import org.terasology.gooeyDefence.simulation.EnemyGrid;
+import org.terasology.gooeyDefence.simulation.EnemyRanking;
+import org.terasology.gooeyDefence.simulation.EnemyStore;
+import org.terasology.gooeyDefence.simulation.MovementTask;
+import org.terasology.gooeyDefence.simulation.PathCoverage;
+import org.terasology.gooeyDefence.simulation.SimulationClock;
+import org.terasology.gooeyDefence.simulation.SimulationTickListener;
+import org.terasology.gooeyDefence.simulation.StepBuckets;
+import org.terasology.gooeyDefence.towerBlocks.SelectionMethod;
 import org.terasology.logic.common.ActivateEvent;
 import org.terasology.logic.delay.DelayManager;
 import org.terasology.logic.delay.PeriodicActionTriggeredEvent;
@@ -42,20 +63,71 @@ import org.terasology.math.geom.Vector3i;
 import org.terasology.registry.In;
 import org.terasology.registry.Share;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Handles all enemy based actions. Is controlled by {@link DefenceWorldManager}.
+ * <p>
+ * The movement state of every enemy is held in an {@link EnemyStore}, and positions are only written back to the
+ * entities once per update.
+ * <p>
+ * Large waves are moved in parallel, with all entity system writes collected and applied on the main thread after
+ * the movement step has finished.
+ * <p>
+ * Enemies are moved on the fixed ticks of the {@link SimulationClock}, not every frame.
+ * <p>
+ * Each enemy follows the {@link PathPolyline} of its path, and only the step of its path component is kept in sync
+ * as it passes each block.
+ * <p>
+ * Targeters are answered from the {@link PathCoverage} of each targeter and the {@link StepBuckets} of enemies on
+ * each entrance path, rather than by searching the field. A coverage is only worked out again when the targeter or
+ * the paths change, and the buckets are re-sorted at most once per tick.
+ * <p>
+ * Targeters with no enemies near them can be put to sleep. They are watched by the steps of path they cover, and
+ * the {@link CoverageListener}s are told to wake them as soon as an enemy heads onto one of those steps.
  */
 @Share(EnemyManager.class)
 @RegisterSystem
-public class EnemyManager extends BaseComponentSystem implements UpdateSubscriberSystem {
+public class EnemyManager extends BaseComponentSystem implements SimulationTickListener {
     private static final Logger logger = LoggerFactory.getLogger(EnemyManager.class);
 
-    private Set<EntityRef> enemies = new HashSet<>();
+    private EnemyStore enemyStore = new EnemyStore();
     private Set<EntityRef> enemiesToRemove = new HashSet<>();
+    private EnemyGrid enemyGrid = new EnemyGrid(DefenceField.outerRingSize());
+    private StepBuckets stepBuckets = new StepBuckets();
+    private boolean bucketsDirty = true;
+    /**
+     * The coverage of each targeter, keyed by the targeter entity.
+     */
+    private Map<EntityRef, PathCoverage> coverages = new HashMap<>();
+    /**
+     * The number of steps in each entrance path, or null if the paths have changed since it was last worked out.
+     */
+    private int[] pathSizes;
+    private CoverageWatchers coverageWatchers = new CoverageWatchers();
+    private List<CoverageListener> coverageListeners = new ArrayList<>();
+    /**
+     * Reused to collect the targeters woken by a single enemy.
+     */
+    private List<EntityRef> wokenTargeters = new ArrayList<>();
+    private ForkJoinPool movementPool;
+    /**
+     * Reused when writing positions back to the entities, to avoid allocating per enemy.
+     */
+    private Vector3f scratchPosition = new Vector3f();
+    private Random random = new Random();
+
+    private final EnemyRanking byProgress = this::getRemainingDistance;
+    private final EnemyRanking byLowestHealth = enemy -> getStoredHealth(enemy, Float.MAX_VALUE);
+    private final EnemyRanking byHighestHealth = enemy -> -getStoredHealth(enemy, -Float.MAX_VALUE);
+    private final EnemyRanking byChance = enemy -> random.nextFloat();
 
     @In
     private EntityManager entityManager;
@@ -63,6 +135,19 @@ public class EnemyManager extends BaseComponentSystem implements UpdateSubscribe
     private PathfindingManager pathfindingManager;
     @In
     private DelayManager delayManager;
+    @In
+    private SimulationClock simulationClock;
+
+    @Override
+    public void initialise() {
+        movementPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        simulationClock.addTickListener(this);
+    }
+
+    @Override
+    public void shutdown() {
+        movementPool.shutdown();
+    }
 
     /**
      * Called when the field is activated.
@@ -70,10 +155,23 @@ public class EnemyManager extends BaseComponentSystem implements UpdateSubscribe
      */
     @ReceiveEvent
     public void onFieldActivated(OnFieldActivated event, EntityRef entity) {
-        enemies.clear();
-        entityManager.getEntitiesWith(GooeyComponent.class).forEach(enemies::add);
-        enemies.stream().filter(enemy -> enemy.hasComponent(EntrancePathComponent.class))
-                .forEach(enemy -> enemy.getComponent(EntrancePathComponent.class).setPathManager(pathfindingManager));
+        enemyStore.clear();
+        enemyGrid.clear();
+        coverages.clear();
+        pathSizes = null;
+        bucketsDirty = true;
+        wakeAllTargeters();
+        for (EntityRef enemy : entityManager.getEntitiesWith(GooeyComponent.class)) {
+            if (enemy.hasComponent(EntrancePathComponent.class)) {
+                enemy.getComponent(EntrancePathComponent.class).setPathManager(pathfindingManager);
+            }
+            addEnemy(enemy);
+            /* Custom paths aren't saved, so they need to be found again */
+            CustomPathComponent customPathComponent = enemy.getComponent(CustomPathComponent.class);
+            if (customPathComponent != null && customPathComponent.getPath() == null) {
+                enemy.send(new RepathEnemyRequest());
+            }
+        }
 
         //delayManager.addPeriodicAction(DefenceField.getShrineEntity(), "SpawnEnemyEvent", 500, 500);
     }
@@ -102,30 +200,38 @@ public class EnemyManager extends BaseComponentSystem implements UpdateSubscribe
 
     /**
      * Called when the a path is changed.
+     * Each enemy's goal is looked up in the step index carried by the event, so this is linear in the number of
+     * enemies rather than in enemies multiplied by path length.
      *
      * @see OnEntrancePathChanged
      */
     @ReceiveEvent
     public void onPathChanged(OnEntrancePathChanged event, EntityRef shrineEntity) {
-        for (EntityRef enemy : enemies) {
+        coverages.clear();
+        pathSizes = null;
+        bucketsDirty = true;
+        /* The steps the sleeping targeters are watching don't exist any more */
+        wakeAllTargeters();
+        for (int slot = 0; slot < enemyStore.size(); slot++) {
+            EntityRef enemy = enemyStore.getEntity(slot);
             /* Firstly check if the enemy is on an unchanged path */
             if (enemy.hasComponent(EntrancePathComponent.class)) {
                 if (enemy.getComponent(EntrancePathComponent.class).getEntranceId() != event.getPathId()) {
-                    return;
+                    continue;
                 }
             }
 
             /* Check if the goal is on the new path */
-            PathComponent pathComponent = DefenceField.getComponentExtending(enemy, PathComponent.class);
+            PathComponent pathComponent = enemyStore.getPath(slot);
             Vector3i goal = pathComponent.getGoal();
-            List<Vector3i> newPath = event.getNewPath();
-            if (newPath.contains(goal)) {
+            int newStep = event.getNewStep(goal);
+            if (newStep != -1) {
                 /* Add a entrance component starting at the given position */
                 enemy.removeComponent(pathComponent.getClass());
                 EntrancePathComponent entranceComponent = new EntrancePathComponent(
                         event.getPathId(),
                         pathfindingManager,
-                        newPath.indexOf(goal));
+                        newStep);
                 enemy.addComponent(entranceComponent);
             } else {
                 /* It's had its path change and it isn't on the new path */
@@ -145,6 +251,53 @@ public class EnemyManager extends BaseComponentSystem implements UpdateSubscribe
         destroyEnemy(entity);
     }
 
+    /**
+     * Called when an enemy is given a new entrance path.
+     * Filters on {@link EntrancePathComponent}
+     *
+     * @see OnActivatedComponent
+     */
+    @ReceiveEvent
+    public void onEntrancePathActivated(OnActivatedComponent event, EntityRef entity, EntrancePathComponent component) {
+        updateStoredPath(entity, component);
+    }
+
+    /**
+     * Called when an enemy is given a new custom path.
+     * Filters on {@link CustomPathComponent}
+     *
+     * @see OnActivatedComponent
+     */
+    @ReceiveEvent
+    public void onCustomPathActivated(OnActivatedComponent event, EntityRef entity, CustomPathComponent component) {
+        updateStoredPath(entity, component);
+    }
+
+    /**
+     * Called when an enemy is paused with a blank path.
+     * Filters on {@link BlankPathComponent}
+     *
+     * @see OnActivatedComponent
+     */
+    @ReceiveEvent
+    public void onBlankPathActivated(OnActivatedComponent event, EntityRef entity, BlankPathComponent component) {
+        updateStoredPath(entity, component);
+    }
+
+    /**
+     * Called when the speed of an enemy is changed.
+     * Filters on {@link MovementComponent}
+     *
+     * @see OnChangedComponent
+     */
+    @ReceiveEvent
+    public void onMovementChanged(OnChangedComponent event, EntityRef entity, MovementComponent component) {
+        int slot = enemyStore.getSlot(entity);
+        if (slot != -1) {
+            enemyStore.setSpeed(slot, component.getSpeed());
+        }
+    }
+
     /**
      * Spawns an enemy at the given entrance.
      * Also begins it travelling down the path.
@@ -162,7 +315,7 @@ public class EnemyManager extends BaseComponentSystem implements UpdateSubscribe
         EntrancePathComponent component = new EntrancePathComponent(entranceNumber, pathfindingManager);
         entity.addComponent(component);
 
-        enemies.add(entity);
+        addEnemy(entity);
     }
 
     /**
@@ -171,94 +324,409 @@ public class EnemyManager extends BaseComponentSystem implements UpdateSubscribe
      * @param enemy The enemy to destroy
      */
     public void destroyEnemy(EntityRef enemy) {
-        enemies.remove(enemy);
+        enemyStore.remove(enemy);
+        enemyGrid.remove(enemy);
         enemy.destroy();
     }
 
     /**
      * Obtain all the enemies that are within range of the given position.
+     * Only the grid cells overlapping the range are checked.
      *
      * @param pos   The position to look for
      * @param range The range to search in.
      * @return A set of all enemies found within this range.
+     * @see EnemyGrid
      */
     public Set<EntityRef> getEnemiesInRange(Vector3f pos, float range) {
-        float rangeSqr = range * range;
+        return enemyGrid.getInRange(pos, range);
+    }
+
+    /**
+     * Find the enemy closest to the given position, skipping some enemies.
+     * Only the grid cells near the position are searched.
+     *
+     * @param pos      The position to look for
+     * @param range    The furthest away an enemy can be
+     * @param excluded The enemies to skip
+     * @return The closest enemy that isn't excluded, or the null entity if there is none within range
+     * @see EnemyGrid
+     */
+    public EntityRef getNearestEnemy(Vector3f pos, float range, Set<EntityRef> excluded) {
+        return enemyGrid.getNearest(pos, range, excluded);
+    }
+
+    /**
+     * Obtain how far an enemy still has to travel along its path.
+     * Enemies that are closer to the end of their path have less distance remaining.
+     *
+     * @param enemy The enemy to check
+     * @return The distance remaining, or {@link Float#MAX_VALUE} if the enemy isn't moving along a path
+     */
+    public float getRemainingDistance(EntityRef enemy) {
+        int slot = enemyStore.getSlot(enemy);
+        return slot != -1 ? enemyStore.getRemainingDistance(slot) : Float.MAX_VALUE;
+    }
+
+    /**
+     * @param method The selection method to rank by
+     * @return The ranking that puts the enemy the method would pick first
+     */
+    private EnemyRanking getRanking(SelectionMethod method) {
+        switch (method) {
+            case FIRST:
+                return byProgress;
+            case WEAK:
+                return byLowestHealth;
+            case STRONG:
+                return byHighestHealth;
+            case RANDOM:
+                return byChance;
+            default:
+                throw new EnumConstantNotPresentException(SelectionMethod.class, method.toString());
+        }
+    }
+
+    /**
+     * Find the best enemy in range of a targeter, according to a selection method.
+     * <p>
+     * Only the enemies on the stretches of path the targeter covers, and those not on an entrance path, are looked
+     * at. Enemies are ranked by the progress and health mirrored in the {@link EnemyStore}, in a single pass. A random
+     * pick gives each enemy a random rank, which chooses uniformly between them.
+     *
+     * @param targeter The targeter entity, used to look up its coverage
+     * @param pos      The position of the targeter
+     * @param minRange Enemies this close or closer are skipped. Negative to include every enemy up to the range.
+     * @param range    The range of the targeter
+     * @param method   How to pick between the enemies in range
+     * @return The chosen enemy, or the null entity if there are no enemies in range
+     */
+    public EntityRef getBestEnemy(EntityRef targeter, Vector3f pos, float minRange, float range,
+                                  SelectionMethod method) {
+        return getStepBuckets().getBest(getCoverage(targeter, pos, minRange, range), enemyStore, getRanking(method));
+    }
+
+    /**
+     * Obtain all the enemies that are within range of a targeter.
+     * Only the enemies on the stretches of path the targeter covers, and those not on an entrance path, are checked.
+     *
+     * @param targeter The targeter entity, used to look up its coverage
+     * @param pos      The position of the targeter
+     * @param range    The range of the targeter
+     * @return A set of all enemies found within range
+     */
+    public Set<EntityRef> getEnemiesInRange(EntityRef targeter, Vector3f pos, float range) {
         Set<EntityRef> result = new HashSet<>();
-        for (EntityRef enemy : enemies) {
-            Vector3f enemyPos = enemy.getComponent(LocationComponent.class).getWorldPosition();
-            if (enemyPos.distanceSquared(pos) <= rangeSqr) {
-                result.add(enemy);
+        getStepBuckets().addCovered(getCoverage(targeter, pos, -1, range), enemyStore, result);
+        return result;
+    }
+
+    /**
+     * Obtain the coverage of a targeter, working it out again if the targeter or the paths have changed.
+     *
+     * @param targeter The targeter entity
+     * @param pos      The position of the targeter
+     * @param minRange The minimum range of the targeter, or negative if it has none
+     * @param range    The range of the targeter
+     * @return The coverage of the targeter
+     */
+    private PathCoverage getCoverage(EntityRef targeter, Vector3f pos, float minRange, float range) {
+        List<PackedPath> paths = pathfindingManager.getPaths();
+        PathCoverage coverage = coverages.get(targeter);
+        if (coverage == null || !coverage.matches(pos, minRange, range, paths)) {
+            coverage = PathCoverage.build(pos, minRange, range, paths);
+            coverages.put(targeter, coverage);
+        }
+        return coverage;
+    }
+
+    /**
+     * @return The step buckets, re-sorted first if any enemy has moved or changed path since they were last sorted
+     */
+    private StepBuckets getStepBuckets() {
+        if (bucketsDirty) {
+            stepBuckets.rebuild(enemyStore, getPathSizes());
+            bucketsDirty = false;
+        }
+        return stepBuckets;
+    }
+
+    /**
+     * @return The number of steps in the path from each entrance. Paths that haven't been found yet have no steps.
+     */
+    private int[] getPathSizes() {
+        if (pathSizes == null) {
+            List<PackedPath> paths = pathfindingManager.getPaths();
+            pathSizes = new int[paths.size()];
+            for (int id = 0; id < pathSizes.length; id++) {
+                PackedPath path = paths.get(id);
+                pathSizes[id] = path != null ? path.size() : 0;
             }
         }
-        return result;
+        return pathSizes;
+    }
+
+    /**
+     * Register a system to be told when sleeping targeters should be woken.
+     *
+     * @param listener The listener to add
+     */
+    public void addCoverageListener(CoverageListener listener) {
+        coverageListeners.add(listener);
+    }
+
+    /**
+     * Put a targeter to sleep, if no enemy could be in its range.
+     * <p>
+     * The targeter is then watched until an enemy heads onto a stretch of path it covers, at which point every
+     * {@link CoverageListener} is told to wake it.
+     *
+     * @param targeter The targeter entity
+     * @param pos      The position of the targeter
+     * @param minRange The minimum range of the targeter, or negative if it has none
+     * @param range    The range of the targeter
+     * @return True if the targeter is now asleep, false if there are enemies it could reach
+     */
+    public boolean sleepUntilCovered(EntityRef targeter, Vector3f pos, float minRange, float range) {
+        PathCoverage coverage = getCoverage(targeter, pos, minRange, range);
+        if (getStepBuckets().hasCandidates(coverage, enemyStore)) {
+            return false;
+        }
+        coverageWatchers.watch(targeter, coverage);
+        return true;
+    }
+
+    /**
+     * Stop watching a sleeping targeter, without waking it.
+     * Does nothing if the targeter isn't asleep.
+     *
+     * @param targeter The targeter to stop watching
+     */
+    public void stopWatching(EntityRef targeter) {
+        coverageWatchers.unwatch(targeter);
+    }
+
+    /**
+     * Wakes every sleeping targeter an enemy may now be in range of.
+     *
+     * @param slot     The slot of the enemy in the store
+     * @param lastStep The step the enemy was heading towards before it last moved
+     */
+    private void wakeTargetersNear(int slot, int lastStep) {
+        if (!coverageWatchers.isEmpty()) {
+            coverageWatchers.wakeFor(enemyStore, slot, lastStep, getPathSizes(), wokenTargeters);
+            notifyWoken();
+        }
+    }
+
+    /**
+     * Wakes every sleeping targeter.
+     */
+    private void wakeAllTargeters() {
+        coverageWatchers.wakeAll(wokenTargeters);
+        notifyWoken();
+    }
+
+    private void notifyWoken() {
+        for (EntityRef targeter : wokenTargeters) {
+            for (CoverageListener listener : coverageListeners) {
+                listener.onTargeterWoken(targeter);
+            }
+        }
+        wokenTargeters.clear();
+    }
+
+    /**
+     * Forgets the coverage of any targeter added to a tower, in case it replaced an upgraded block.
+     * Any of those targeters that were asleep are no longer watched, as the tower reschedules them.
+     * Filters on {@link TowerComponent}
+     *
+     * @see TowerChangedEvent
+     */
+    @ReceiveEvent
+    public void onTowerChanged(TowerChangedEvent event, EntityRef towerEntity, TowerComponent towerComponent) {
+        for (EntityRef block : event.getChangedBlocks()) {
+            coverages.remove(block);
+            coverageWatchers.unwatch(block);
+        }
+    }
+
+    /**
+     * Forgets the coverage of every targeter on a destroyed tower, and stops watching them.
+     * Filters on {@link TowerComponent}
+     *
+     * @see TowerDestroyedEvent
+     */
+    @ReceiveEvent
+    public void onTowerDestroyed(TowerDestroyedEvent event, EntityRef towerEntity, TowerComponent towerComponent) {
+        for (EntityRef targeter : towerComponent.targeter) {
+            coverages.remove(targeter);
+            coverageWatchers.unwatch(targeter);
+        }
+    }
+
+    /**
+     * @param enemy    The enemy to check
+     * @param fallback The value to use if the enemy isn't in the store
+     * @return The health of the enemy as recorded in the store
+     */
+    private float getStoredHealth(EntityRef enemy, float fallback) {
+        int slot = enemyStore.getSlot(enemy);
+        return slot != -1 ? enemyStore.getHealth(slot) : fallback;
+    }
+
+    /**
+     * Copies the health of an enemy into the store after it has been damaged.
+     * Runs after the damage has been applied. Enemies that died from the damage have already been removed.
+     * Filters on {@link GooeyComponent} and {@link HealthComponent}
+     *
+     * @see DamageEntityEvent
+     */
+    @ReceiveEvent(priority = EventPriority.PRIORITY_TRIVIAL)
+    public void onEnemyDamaged(DamageEntityEvent event, EntityRef entity, GooeyComponent gooeyComponent,
+                               HealthComponent healthComponent) {
+        int slot = enemyStore.getSlot(entity);
+        if (slot != -1) {
+            enemyStore.setHealth(slot, healthComponent.getHealth());
+        }
     }
 
     @Override
-    public void update(float delta) {
+    public void onSimulationTick(float tickLength) {
         if (DefenceField.isFieldActivated()) {
-            enemies.forEach(entity -> moveEnemyAlongPath(entity, delta));
-            enemiesToRemove.forEach(enemies::remove);
-            enemiesToRemove.forEach(EntityRef::destroy);
-            enemiesToRemove.clear();
+            moveEnemies(tickLength);
+            bucketsDirty = true;
+            for (int slot = 0; slot < enemyStore.size(); slot++) {
+                if (enemyStore.hasStepChanged(slot) || enemyStore.isAtEnd(slot)) {
+                    updateStep(slot);
+                }
+            }
+            writeBackPositions();
+
+            if (!enemiesToRemove.isEmpty()) {
+                removeFinishedEnemies();
+            }
         }
     }
 
     /**
-     * Moves an enemy one step along it's path.
-     * Also handles the enemy reaching the end of the path.
+     * Moves every enemy one step along its path.
+     * Small numbers of enemies are moved directly, larger numbers are split across the movement pool.
      *
-     * @param entity the enemy to move
+     * @param delta The length of the tick, in seconds
      */
-    private void moveEnemyAlongPath(EntityRef entity, float delta) {
-        PathComponent pathComponent = DefenceField.getComponentExtending(entity, PathComponent.class);
-        LocationComponent locationComponent = entity.getComponent(LocationComponent.class);
-
-        float distSqr = locationComponent.getWorldPosition().distanceSquared(pathComponent.getGoal().toVector3f());
-        if (distSqr < 0.1f) {
-            updateToNextStep(entity, pathComponent);
+    private void moveEnemies(float delta) {
+        if (enemyStore.size() <= MovementTask.SPLIT_THRESHOLD) {
+            enemyStore.advance(0, enemyStore.size(), delta);
         } else {
-            moveEnemyTowardsGoal(entity, pathComponent, locationComponent, delta);
+            movementPool.invoke(new MovementTask(enemyStore, 0, enemyStore.size(), delta));
         }
     }
 
     /**
-     * Handles the entity reaching the goal.
-     * Either marks the entity as having reached the end of the path or picks the next element in the path as the goal.
+     * Adds an enemy entity to the store and the grid, reading its initial state from its components.
      *
-     * @param entity        The entity to update
-     * @param pathComponent The GooeyComponent of the entity
-     */
-    private void updateToNextStep(EntityRef entity, PathComponent pathComponent) {
-        if (pathComponent.atEnd()) {
-            GooeyComponent gooeyComponent = entity.getComponent(GooeyComponent.class);
-            entity.send(new DamageEntityEvent(gooeyComponent.damage));
-            enemiesToRemove.add(entity);
-        } else {
-            pathComponent.nextStep();
+     * @param enemy The enemy to add
+     */
+    private void addEnemy(EntityRef enemy) {
+        Vector3f position = enemy.getComponent(LocationComponent.class).getWorldPosition();
+        PathComponent pathComponent = DefenceField.getComponentExtending(enemy, PathComponent.class);
+        int slot = enemyStore.add(enemy,
+                position,
+                enemy.getComponent(MovementComponent.class).getSpeed(),
+                pathComponent,
+                getPolyline(pathComponent));
+        HealthComponent healthComponent = enemy.getComponent(HealthComponent.class);
+        if (healthComponent != null) {
+            enemyStore.setHealth(slot, healthComponent.getHealth());
+        }
+        enemyGrid.add(enemy, position);
+        bucketsDirty = true;
+        wakeTargetersNear(slot, enemyStore.getStep(slot));
+    }
+
+    /**
+     * Points the store at the new path component of an enemy.
+     * Does nothing if the entity isn't a tracked enemy.
+     *
+     * @param entity        The enemy whose path changed
+     * @param pathComponent The new path component
+     */
+    private void updateStoredPath(EntityRef entity, PathComponent pathComponent) {
+        int slot = enemyStore.getSlot(entity);
+        if (slot != -1) {
+            enemyStore.setPath(slot, pathComponent, getPolyline(pathComponent));
+            bucketsDirty = true;
+            wakeTargetersNear(slot, enemyStore.getStep(slot));
         }
     }
 
+    /**
+     * Obtains the polyline an enemy with the given path component should follow.
+     *
+     * @param pathComponent The path component of the enemy
+     * @return The polyline of the path, or null if the enemy shouldn't move
+     */
+    private PathPolyline getPolyline(PathComponent pathComponent) {
+        if (pathComponent instanceof EntrancePathComponent) {
+            return pathfindingManager.getPolyline(((EntrancePathComponent) pathComponent).getEntranceId());
+        } else if (pathComponent instanceof CustomPathComponent) {
+            PackedPath path = ((CustomPathComponent) pathComponent).getPath();
+            return path != null ? path.getPolyline() : null;
+        } else {
+            return null;
+        }
+    }
 
     /**
-     * Moves the entity towards it's goal.
+     * Handles the enemy in the slot passing a step of its path.
+     * Either marks the entity as having reached the end of the path or brings its path component up to the step the
+     * store has reached.
      *
-     * @param entity            The entity to move
-     * @param pathComponent     The GooeyComponent of the entity
-     * @param locationComponent The LocationComponent of the entity
-     * @param delta             The time elapsed since the last call (in ms)
-     */
-    private void moveEnemyTowardsGoal(EntityRef entity, PathComponent pathComponent, LocationComponent locationComponent, float delta) {
-        MovementComponent movementComponent = entity.getComponent(MovementComponent.class);
-        /* Calculate required heading */
-        Vector3f target = pathComponent.getGoal().toVector3f();
-        target.sub(locationComponent.getWorldPosition());
-        target.normalize();
-        /* Scale to the speed */
-        target.scale(movementComponent.getSpeed() * delta);
-        /* Move the enemy */
-        locationComponent.setWorldPosition(locationComponent.getWorldPosition().add(target));
-        entity.saveComponent(locationComponent);
+     * @param slot The slot of the enemy in the store
+     */
+    private void updateStep(int slot) {
+        if (enemyStore.isAtEnd(slot)) {
+            enemiesToRemove.add(enemyStore.getEntity(slot));
+        } else {
+            PathComponent pathComponent = enemyStore.getPath(slot);
+            int lastStep = pathComponent.getStep();
+            while (pathComponent.getStep() > enemyStore.getStep(slot)) {
+                pathComponent.nextStep();
+            }
+            wakeTargetersNear(slot, lastStep);
+        }
     }
 
+    /**
+     * Damages the shrine for every enemy that reached the end of its path, and then removes those enemies.
+     */
+    private void removeFinishedEnemies() {
+        for (EntityRef enemy : enemiesToRemove) {
+            GooeyComponent gooeyComponent = enemy.getComponent(GooeyComponent.class);
+            enemy.send(new DamageEntityEvent(gooeyComponent.damage));
+        }
+        for (EntityRef enemy : enemiesToRemove) {
+            enemyStore.remove(enemy);
+            enemyGrid.remove(enemy);
+            enemy.destroy();
+        }
+        enemiesToRemove.clear();
+    }
+
+    /**
+     * Copies the positions of all enemies that moved this update back onto their entities.
+     * The same vector is reused for every enemy, as the location component copies the value it is given.
+     */
+    private void writeBackPositions() {
+        for (int slot = 0; slot < enemyStore.size(); slot++) {
+            if (enemyStore.hasMoved(slot)) {
+                EntityRef entity = enemyStore.getEntity(slot);
+                LocationComponent locationComponent = entity.getComponent(LocationComponent.class);
+                locationComponent.setWorldPosition(enemyStore.getPosition(slot, scratchPosition));
+                entity.saveComponent(locationComponent);
+                enemyGrid.update(entity, enemyStore.getX(slot), enemyStore.getY(slot), enemyStore.getZ(slot));
+            }
+        }
+    }
 }
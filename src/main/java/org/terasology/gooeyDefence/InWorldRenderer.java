@@ -22,6 +22,7 @@ import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.entitySystem.systems.RenderSystem;
 import org.terasology.gooeyDefence.events.health.DamageEntityEvent;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
 import org.terasology.math.geom.Vector3i;
 import org.terasology.registry.In;
 import org.terasology.rendering.world.selection.BlockSelectionRenderer;
@@ -57,10 +58,11 @@ public class InWorldRenderer extends BaseComponentSystem implements RenderSystem
     @Override
     public void renderAlphaBlend() {
         pathBlockRenderer.beginRenderOverlay();
-        List<List<Vector3i>> paths = pathfindingManager.getPaths();
-        for (List<Vector3i> path : paths) {
+        List<PackedPath> paths = pathfindingManager.getPaths();
+        for (PackedPath path : paths) {
             if (path != null) {
-                for (Vector3i pos : path) {
+                for (int step = 0; step < path.size(); step++) {
+                    Vector3i pos = path.get(step);
                     pathBlockRenderer.renderMark2(pos);
                     pathBlockRenderer.renderMark2(Vector3i.up().add(pos));
                 }
@@ -15,171 +15,678 @@
  */
 package org.terasology.gooeyDefence;
 
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.event.EventPriority;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterSystem;
-import org.terasology.flexiblepathfinding.JPSConfig;
-import org.terasology.flexiblepathfinding.PathfinderSystem;
 import org.terasology.gooeyDefence.components.enemies.BlankPathComponent;
 import org.terasology.gooeyDefence.components.enemies.CustomPathComponent;
 import org.terasology.gooeyDefence.components.enemies.PathComponent;
+import org.terasology.gooeyDefence.components.ShrineComponent;
 import org.terasology.gooeyDefence.events.OnEntrancePathChanged;
 import org.terasology.gooeyDefence.events.OnFieldActivated;
 import org.terasology.gooeyDefence.events.RepathEnemyRequest;
+import org.terasology.gooeyDefence.pathfinding.ConnectivityCheck;
 import org.terasology.gooeyDefence.pathfinding.EnemyWalkingPlugin;
+import org.terasology.gooeyDefence.pathfinding.FieldPathfinder;
+import org.terasology.gooeyDefence.pathfinding.FlowField;
+import org.terasology.gooeyDefence.pathfinding.HierarchicalPathfinder;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.gooeyDefence.pathfinding.PathPolyline;
+import org.terasology.gooeyDefence.pathfinding.RebuildMode;
+import org.terasology.gooeyDefence.pathfinding.WalkabilityMap;
+import org.terasology.gooeyDefence.simulation.SimulationClock;
+import org.terasology.gooeyDefence.simulation.SimulationTickListener;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Vector3i;
 import org.terasology.registry.In;
 import org.terasology.registry.Share;
 import org.terasology.world.OnChangedBlock;
 import org.terasology.world.WorldProvider;
+import org.terasology.world.block.Block;
 import org.terasology.world.block.entity.placement.PlaceBlocks;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Provides the paths enemies follow to the shrine.
+ * <p>
+ * A single {@link FlowField} is calculated outwards from the centre of the field. The entrance paths, and the path
+ * for any enemy that needs re-pathing, are then read straight out of it. Fields too large to hold a flow field use a
+ * {@link HierarchicalPathfinder} instead, which answers the same queries from an abstract graph of sectors.
+ * The field is kept between block changes, and only repaired around each block that changes.
+ * <p>
+ * Block changes are not repaired straight away. They are collected until no more have arrived for a short while, and
+ * then all repaired at once on the {@link SimulationClock}. This means building a tower only repairs the field once.
+ * <p>
+ * Rebuilding the whole field is done on a worker thread, against a copy of the walkability map. Each rebuild is given
+ * a generation, and requesting a new rebuild cancels the one before it, so only the newest field is ever published.
+ * Blocks that change whilst a rebuild is running are repaired once it has been published.
+ * <p>
+ * Rebuilds can instead be time sliced, running on the main thread for a set budget each tick. Provisional paths are
+ * published as soon as the first slice has run, so enemies can spawn straight away, and refined every few ticks
+ * until the rebuild finishes.
+ *
+ * @see FieldPathfinder
+ */
 @Share(PathfindingManager.class)
 @RegisterSystem
-public class PathfindingManager extends BaseComponentSystem {
+public class PathfindingManager extends BaseComponentSystem implements SimulationTickListener {
     private static final Logger logger = LoggerFactory.getLogger(PathfindingManager.class);
     /**
-     * How long the pathfinding system should try and find a path for before giving up.
-     * In seconds.
+     * How many ticks must pass without a block changing before the changes are repaired.
+     */
+    private static final int DEBOUNCE_TICKS = 4;
+    /**
+     * The most ticks a change will be held for, even if more blocks keep changing.
+     */
+    private static final int MAX_DEBOUNCE_TICKS = 20;
+    /**
+     * How many blocks can change at once before the field is rebuilt rather than repaired.
+     */
+    private static final int REBUILD_THRESHOLD = 256;
+    /**
+     * How many slices of a time sliced rebuild run between each refinement of the provisional paths.
+     */
+    private static final int PROVISIONAL_INTERVAL = 10;
+    /**
+     * The largest field radius that uses a flow field. Larger fields use hierarchical pathfinding.
      */
-    private static final float PATHFINDING_TIMEOUT = 10.f;
+    private static final int HIERARCHICAL_THRESHOLD = 128;
+    /**
+     * The highest estimated cost from a changed block to any cell whose moves depend on it.
+     */
+    private static final int CHANGE_REACH_COST = FlowField.estimateCost(1, 2, 1);
+    /**
+     * How many cells a placement may search through to show that a broken entrance can still reach the shrine, whilst
+     * the field is being rebuilt. Placements that can't be shown safe within this are refused.
+     */
+    private static final int PLACEMENT_SEARCH_LIMIT = 4096;
+    private static final ShrineComponent DEFAULT_SETTINGS = new ShrineComponent();
 
-    @In
-    private PathfinderSystem pathfinderSystem;
-    private List<List<Vector3i>> paths = new ArrayList<>(Collections.nCopies(DefenceField.entranceCount(), null));
+    private List<PackedPath> paths = new ArrayList<>(Collections.nCopies(DefenceField.entranceCount(), null));
+    /**
+     * Every position on an entrance path, mapped to the path. New paths share their end with these where they can.
+     */
+    private TIntObjectMap<PackedPath> entrancePathSteps = new TIntObjectHashMap<>();
+    private FieldPathfinder pathfinder;
+    private WalkabilityMap walkabilityMap;
+    private Set<Vector3i> dirtyBlocks = new HashSet<>();
+    private long firstChangeTick;
+    private long lastChangeTick;
+    private ExecutorService rebuildExecutor;
+    private Future<FieldPathfinder> pendingRebuild;
+    /**
+     * The generation of the newest rebuild that has been requested.
+     */
+    private volatile long rebuildGeneration;
+    private List<Runnable> rebuildCallbacks = new ArrayList<>();
+    private FieldPathfinder slicedRebuild;
+    /**
+     * How long the time sliced rebuild may run for each tick, in nanoseconds.
+     */
+    private long sliceBudget;
+    private int slicesRun;
+    /**
+     * Which entrance paths are only provisional, and should be refined whilst the rebuild continues.
+     */
+    private boolean[] provisionalPaths = new boolean[DefenceField.entranceCount()];
+    private Set<EntityRef> repathRequests = new LinkedHashSet<>();
     @In
     private WorldProvider worldProvider;
+    @In
+    private SimulationClock simulationClock;
+
+    @Override
+    public void initialise() {
+        walkabilityMap = new WalkabilityMap(
+                DefenceField.outerRingSize(),
+                DefenceField.fieldCentre().y,
+                DefenceField.fieldHeight());
+        pathfinder = createPathfinder(walkabilityMap);
+        rebuildExecutor = Executors.newSingleThreadExecutor();
+        simulationClock.addTickListener(this);
+    }
 
+    @Override
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
 
     /**
      * Called to initialise the field.
+     * The field isn't activated until the pathfinder has been built.
      */
     @ReceiveEvent
     public void onFieldActivated(OnFieldActivated event, EntityRef entity) {
-        for (int id = 0; id < DefenceField.entranceCount(); id++) {
-            event.beginTask();
-            calculatePath(id, event::finishTask);
-        }
+        walkabilityMap.load(worldProvider);
+        event.beginTask();
+        requestRebuild(event::finishTask);
     }
 
 
     /**
-     * Update path on a block placed
+     * Refuses any block placement that would cut an entrance off from the shrine.
+     * <p>
+     * The placement is applied to the walkability map for the length of the check, and undone afterwards. The blocks
+     * around the placement are checked first, which is enough to prove almost every placement safe. Only if that fails
+     * are the entrance paths checked. If one of them is broken, the field is repaired around the placement to see
+     * whether the entrance can still reach the shrine, and then repaired back. Whilst a rebuild is running, the map is
+     * searched from the entrance instead, and the placement is refused if that search gives up.
+     *
+     * @see ConnectivityCheck
      */
-    @ReceiveEvent
+    @ReceiveEvent(priority = EventPriority.PRIORITY_HIGH)
     public void onPlaceBlocks(PlaceBlocks event, EntityRef entity) {
-        if (DefenceField.isFieldActivated()) {
-            calculatePaths();
+        if (!DefenceField.isFieldActivated()) {
+            return;
+        }
+        List<Vector3i> changedBlocks = new ArrayList<>();
+        for (Map.Entry<Vector3i, Block> entry : event.getBlocks().entrySet()) {
+            Vector3i position = entry.getKey();
+            if (walkabilityMap.isPenetrable(position.x, position.y, position.z) != entry.getValue().isPenetrable()) {
+                changedBlocks.add(position);
+            }
+        }
+        if (changedBlocks.isEmpty()) {
+            return;
+        }
+
+        Vector3i centre = DefenceField.fieldCentre();
+        List<Vector3i> endpoints = new ArrayList<>();
+        endpoints.add(centre);
+        for (int id = 0; id < DefenceField.entranceCount(); id++) {
+            endpoints.add(DefenceField.entrancePos(id));
+        }
+        ConnectivityCheck check = new ConnectivityCheck(pathfinder.getPlugin(),
+                centre.x, centre.z, DefenceField.outerRingSize(), centre.y, DefenceField.fieldHeight());
+        boolean checkable = check.begin(changedBlocks, endpoints);
+        toggleBlocks(changedBlocks);
+        boolean repaired = false;
+        boolean disconnected = false;
+        if ((!checkable || !check.isLocallySafe()) && isAnyPathBroken()) {
+            if (pendingRebuild != null || slicedRebuild != null) {
+                /* The live field is about to be replaced, and can't be repaired to match the map */
+                disconnected = isAnyBrokenEntranceCutOff(check);
+            } else {
+                /* Any earlier changes that haven't been repaired yet are included, so the field matches the map */
+                List<Vector3i> repairedBlocks = new ArrayList<>(changedBlocks);
+                repairedBlocks.addAll(dirtyBlocks);
+                pathfinder.update(repairedBlocks);
+                repaired = true;
+                disconnected = isAnyEntranceCutOff(pathfinder);
+            }
+        }
+        toggleBlocks(changedBlocks);
+        if (repaired) {
+            pathfinder.update(changedBlocks);
+        }
+        if (disconnected) {
+            event.consume();
+        }
+    }
+
+    /**
+     * Flip whether some blocks can be passed through in the walkability map.
+     * Flipping the same blocks again restores the map.
+     *
+     * @param blocks The blocks to flip
+     */
+    private void toggleBlocks(List<Vector3i> blocks) {
+        for (Vector3i position : blocks) {
+            boolean penetrable = walkabilityMap.isPenetrable(position.x, position.y, position.z);
+            walkabilityMap.set(position.x, position.y, position.z, !penetrable);
         }
     }
 
     /**
-     * Update path on a block removed
+     * Marks a block as needing to be repaired when it is placed or removed.
+     * The walkability map is updated straight away, so it always matches the world.
+     * Changes outside the field, or that don't change what enemies can pass through, are ignored.
      */
     @ReceiveEvent
     public void onChangedBlock(OnChangedBlock event, EntityRef entity) {
+        Vector3i position = event.getBlockPosition();
+        if (!walkabilityMap.set(position.x, position.y, position.z, event.getNewType().isPenetrable())) {
+            return;
+        }
         if (DefenceField.isFieldActivated()) {
-            calculatePaths();
+            if (dirtyBlocks.isEmpty()) {
+                firstChangeTick = simulationClock.getCurrentTick();
+            }
+            lastChangeTick = simulationClock.getCurrentTick();
+            dirtyBlocks.add(new Vector3i(position));
+        }
+    }
+
+    /**
+     * Publishes the newest rebuild once it has finished, and repairs any changed blocks once it has.
+     * Any repath requests collected since the last tick are then served from the resulting field.
+     */
+    @Override
+    public void onSimulationTick(float tickLength) {
+        if (pendingRebuild != null && pendingRebuild.isDone()) {
+            publishRebuild();
+        }
+        if (slicedRebuild != null) {
+            continueSlicedRebuild();
+        }
+        /* Hold any repairs until the rebuild has landed */
+        if (pendingRebuild == null && slicedRebuild == null) {
+            repairDirtyBlocks();
+        }
+        if (!repathRequests.isEmpty()) {
+            processRepathRequests();
         }
     }
 
     /**
      * Called to request an enemy be re-pathed.
+     * Requests are collected and served together on the next tick.
      *
      * @see RepathEnemyRequest
      */
     @ReceiveEvent
     public void onRepathEnemyRequest(RepathEnemyRequest event, EntityRef entity, LocationComponent locationComponent) {
-        /* Pause the enemy */
-        entity.removeComponent(DefenceField.getComponentExtending(entity, PathComponent.class).getClass());
-        entity.addComponent(new BlankPathComponent(new Vector3i(locationComponent.getWorldPosition())));
-
-        /* Process its path */
-        calculatePath(buildJpsConfig(new Vector3i(locationComponent.getWorldPosition())),
-                path -> {
-                    if (!path.isEmpty()) {
-                        CustomPathComponent customPathComponent = new CustomPathComponent(path);
-                        entity.addComponent(customPathComponent);
-                        entity.removeComponent(BlankPathComponent.class);
-                    }
-                });
+        repathRequests.add(entity);
     }
 
     /**
-     * Calculate the path from an entrance to the centre
-     *
-     * @param id       The entrance to calculate from
-     * @param callback A callback to be invoked after the path calculation has finished.
-     */
-    private void calculatePath(int id, Runnable callback) {
-        calculatePath(buildJpsConfig(DefenceField.entrancePos(id)),
-                (path) -> {
-                    List<Vector3i> oldPath = paths.get(id);
-                    paths.set(id, path);
-                    if (oldPath != null && !oldPath.equals(path)) {
-                        DefenceField.getShrineEntity().send(new OnEntrancePathChanged(id, path));
-                    }
-                    if (callback != null) {
-                        callback.run();
-                    }
-                });
+     * Repairs the field once block changes have settled down, or once they have been held for too long.
+     * Large numbers of changes are rebuilt instead of repaired.
+     * Only the entrance paths the changes could affect are read out of the field again.
+     */
+    private void repairDirtyBlocks() {
+        if (dirtyBlocks.isEmpty()) {
+            return;
+        }
+        long currentTick = simulationClock.getCurrentTick();
+        if (currentTick - lastChangeTick >= DEBOUNCE_TICKS || currentTick - firstChangeTick >= MAX_DEBOUNCE_TICKS) {
+            if (dirtyBlocks.size() > REBUILD_THRESHOLD) {
+                requestRebuild(null);
+            } else {
+                boolean[] affected = new boolean[DefenceField.entranceCount()];
+                for (int id = 0; id < affected.length; id++) {
+                    affected[id] = isPathAffected(id, dirtyBlocks);
+                }
+                pathfinder.update(dirtyBlocks);
+                dirtyBlocks.clear();
+                updateEntrancePaths(affected);
+            }
+        }
+    }
+
+    /**
+     * Gives every enemy that requested it a new path from the pathfinder.
+     * <p>
+     * Enemies are grouped by the cell they are standing in, so that the path is only read out of the field once per
+     * cell. Enemies in the same cell share the same path, and any path that rejoins an entrance path shares its end.
+     * Enemies that can't reach the centre are paused in place.
+     */
+    private void processRepathRequests() {
+        Map<Vector3i, PackedPath> pathsByCell = new HashMap<>();
+        /* Copy the requests, as changing components may send more of them */
+        List<EntityRef> requests = new ArrayList<>(repathRequests);
+        repathRequests.clear();
+        for (EntityRef entity : requests) {
+            if (!entity.exists()) {
+                continue;
+            }
+            Vector3i position = new Vector3i(entity.getComponent(LocationComponent.class).getWorldPosition());
+            PackedPath path = pathsByCell.computeIfAbsent(position,
+                    cell -> pathfinder.getPath(cell, entrancePathSteps));
+
+            entity.removeComponent(DefenceField.getComponentExtending(entity, PathComponent.class).getClass());
+            if (path.isEmpty()) {
+                entity.addComponent(new BlankPathComponent(position));
+            } else {
+                entity.addComponent(new CustomPathComponent(path));
+            }
+        }
     }
 
     /**
-     * Calculate the path given the config and the callback.
+     * Start rebuilding the pathfinder from scratch, either on the worker thread or in slices depending on the mode.
+     * Any rebuild already running is cancelled, as its result would be out of date.
      *
-     * @param config   The config to use for the pathfinding.
-     * @param callback The callback to be used once the path is found.
-     */
-    private void calculatePath(JPSConfig config, Consumer<List<Vector3i>> callback) {
-        pathfinderSystem.requestPath(config, (path, end) -> {
-            /* In order to make the path use zero as the end, we need to flip it. */
-            Collections.reverse(path);
-            callback.accept(path);
+     * @param callback A callback to be invoked once a rebuild has been published. May be null.
+     */
+    private void requestRebuild(Runnable callback) {
+        if (pendingRebuild != null) {
+            pendingRebuild.cancel(true);
+            pendingRebuild = null;
+        }
+        slicedRebuild = null;
+        if (callback != null) {
+            rebuildCallbacks.add(callback);
+        }
+        rebuildGeneration++;
+        /* The snapshot includes every change so far, so none of them need repairing afterwards */
+        dirtyBlocks.clear();
+
+        long generation = rebuildGeneration;
+        WalkabilityMap snapshot = new WalkabilityMap(walkabilityMap);
+        FieldPathfinder field = createPathfinder(snapshot);
+        ShrineComponent settings = getRebuildSettings();
+        if (settings.rebuildMode == RebuildMode.TIME_SLICED) {
+            field.reset();
+            slicedRebuild = field;
+            sliceBudget = (long) (settings.rebuildBudget * 1_000_000);
+            slicesRun = 0;
+            return;
+        }
+        /* The whole field is searched here, so that the first repair on the main thread doesn't have to finish it */
+        pendingRebuild = rebuildExecutor.submit(() -> {
+            if (!field.calculate() || !field.complete(-1) || generation != rebuildGeneration) {
+                return null;
+            }
+            return field;
         });
+    }
 
+    /**
+     * The shrine holds the settings for how the field is rebuilt. The defaults are used if it hasn't been placed yet.
+     *
+     * @return The component holding the rebuild settings
+     */
+    private ShrineComponent getRebuildSettings() {
+        ShrineComponent shrine = DefenceField.getShrineEntity().getComponent(ShrineComponent.class);
+        return shrine != null ? shrine : DEFAULT_SETTINGS;
     }
 
     /**
-     * Produces a config to be used for pathfinding.
-     * Sets the path to run from the given position to the shrine.
+     * Check whether any entrance path uses a move that the walkability map no longer allows.
      *
-     * @param start The starting position of the path.
-     * @return A new JPSConfig for the path.
-     */
-    private JPSConfig buildJpsConfig(Vector3i start) {
-        JPSConfig result = new JPSConfig();
-        result.start = start;
-        result.stop = DefenceField.fieldCentre();
-        result.maxDepth = DefenceField.outerRingSize() * 2;
+     * @return True if a path has been broken
+     */
+    private boolean isAnyPathBroken() {
+        EnemyWalkingPlugin plugin = pathfinder.getPlugin();
+        for (PackedPath path : paths) {
+            if (path == null) {
+                continue;
+            }
+            for (int step = path.size() - 1; step > 0; step--) {
+                if (!plugin.isReachable(path.getX(step - 1), path.getY(step - 1), path.getZ(step - 1),
+                        path.getX(step), path.getY(step), path.getZ(step))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check a field for any entrance that had a path, but can no longer reach the shrine.
+     *
+     * @param field The field to check, which must match the walkability map
+     * @return True if an entrance has been cut off
+     */
+    private boolean isAnyEntranceCutOff(FieldPathfinder field) {
+        for (int id = 0; id < DefenceField.entranceCount(); id++) {
+            PackedPath path = paths.get(id);
+            if (path != null && !path.isEmpty() && field.getPath(DefenceField.entrancePos(id)).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check the walkability map for any entrance whose path has been broken, and that may no longer reach the shrine.
+     * <p>
+     * Each step of a path from the centre up to where it breaks can still reach the shrine, as can every step of an
+     * unbroken path. A bounded search is run from each broken entrance until it finds one of those steps.
+     *
+     * @param check The check to search the map with
+     * @return True if an entrance is cut off, or couldn't be shown to still reach the shrine
+     */
+    private boolean isAnyBrokenEntranceCutOff(ConnectivityCheck check) {
+        EnemyWalkingPlugin plugin = pathfinder.getPlugin();
+        Vector3i centre = DefenceField.fieldCentre();
+        TIntSet intactSteps = new TIntHashSet();
+        intactSteps.add(PackedPath.pack(centre.x, centre.y, centre.z));
+        boolean[] broken = new boolean[DefenceField.entranceCount()];
+        for (int id = 0; id < broken.length; id++) {
+            PackedPath path = paths.get(id);
+            if (path == null || path.isEmpty()) {
+                continue;
+            }
+            int step = 1;
+            while (step < path.size() && plugin.isReachable(path.getX(step - 1), path.getY(step - 1),
+                    path.getZ(step - 1), path.getX(step), path.getY(step), path.getZ(step))) {
+                step++;
+            }
+            broken[id] = step < path.size();
+            for (int intact = 0; intact < step; intact++) {
+                intactSteps.add(path.getPacked(intact));
+            }
+        }
+        for (int id = 0; id < broken.length; id++) {
+            if (broken[id] && !check.canReach(DefenceField.entrancePos(id), intactSteps, PLACEMENT_SEARCH_LIMIT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private EnemyWalkingPlugin createPlugin(WalkabilityMap map) {
         //TODO: Replace width and height with values from enemy.
-        result.plugin = new EnemyWalkingPlugin(worldProvider, 0.5f, 0.5f);
-        result.maxTime = PATHFINDING_TIMEOUT;
-        return result;
+        return new EnemyWalkingPlugin(worldProvider, map, 0.5f, 0.5f);
+    }
+
+    /**
+     * Create an empty pathfinder covering the defence field.
+     * A flow field is used unless the field is too large, in which case hierarchical pathfinding is used.
+     * A flow field's calculation stops once every entrance has been reached, so it must be completed before it is
+     * published.
+     *
+     * @param map The walkability map the pathfinder should read from
+     * @return The new pathfinder
+     */
+    private FieldPathfinder createPathfinder(WalkabilityMap map) {
+        EnemyWalkingPlugin plugin = createPlugin(map);
+        if (DefenceField.outerRingSize() > HIERARCHICAL_THRESHOLD) {
+            return new HierarchicalPathfinder(plugin,
+                    DefenceField.outerRingSize(),
+                    DefenceField.fieldCentre().y,
+                    DefenceField.fieldHeight());
+        }
+        Vector3i[] entrances = new Vector3i[DefenceField.entranceCount()];
+        for (int id = 0; id < entrances.length; id++) {
+            entrances[id] = DefenceField.entrancePos(id);
+        }
+        return new FlowField(plugin,
+                DefenceField.outerRingSize(),
+                DefenceField.fieldCentre().y,
+                DefenceField.fieldHeight(),
+                entrances);
+    }
+
+    /**
+     * Runs the next slice of the time sliced rebuild, and publishes the field once it has been completed.
+     * Until then, provisional paths are published after the first slice and refined every few slices.
+     */
+    private void continueSlicedRebuild() {
+        long deadline = System.nanoTime() + sliceBudget;
+        if (slicedRebuild.resume(sliceBudget) && slicedRebuild.complete(Math.max(0, deadline - System.nanoTime()))) {
+            FieldPathfinder field = slicedRebuild;
+            slicedRebuild = null;
+            publishField(field);
+        } else if (slicesRun++ % PROVISIONAL_INTERVAL == 0) {
+            publishProvisionalPaths();
+        }
+    }
+
+    /**
+     * Publishes a best effort path for every entrance that has no path yet, or only a provisional one.
+     * Entrances that already have a full path keep it until the rebuild has finished.
+     */
+    private void publishProvisionalPaths() {
+        for (int id = 0; id < DefenceField.entranceCount(); id++) {
+            PackedPath oldPath = paths.get(id);
+            if (oldPath != null && !oldPath.isEmpty() && !provisionalPaths[id]) {
+                continue;
+            }
+            PackedPath path = slicedRebuild.getProvisionalPath(DefenceField.entrancePos(id));
+            if (!path.isEmpty() && !path.sameSteps(oldPath)) {
+                provisionalPaths[id] = true;
+                paths.set(id, path);
+                indexEntrancePaths();
+                DefenceField.getShrineEntity().send(new OnEntrancePathChanged(id, path));
+            }
+        }
+        runRebuildCallbacks();
+    }
+
+    /**
+     * Swaps in the field from the finished rebuild and updates the entrance paths from it.
+     * Must only be called once the pending rebuild is done.
+     */
+    private void publishRebuild() {
+        FieldPathfinder field;
+        try {
+            field = pendingRebuild.get();
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            logger.error("Unable to rebuild the pathfinder", e);
+            field = null;
+        }
+        pendingRebuild = null;
+        if (field != null) {
+            publishField(field);
+        }
+    }
+
+    /**
+     * Swaps in a newly rebuilt field and updates the entrance paths from it.
+     *
+     * @param field The field to publish
+     */
+    private void publishField(FieldPathfinder field) {
+        /* Later repairs must use the live walkability map rather than the snapshot */
+        field.setPlugin(pathfinder.getPlugin());
+        pathfinder = field;
+        Arrays.fill(provisionalPaths, false);
+        updateEntrancePaths();
+        runRebuildCallbacks();
+    }
+
+    private void runRebuildCallbacks() {
+        for (Runnable callback : rebuildCallbacks) {
+            callback.run();
+        }
+        rebuildCallbacks.clear();
+    }
+
+    /**
+     * Check whether some changed blocks could alter the path from an entrance.
+     * <p>
+     * A change can only alter the path if the path passes next to it, or if a route past it could be shorter than
+     * the path. The second is judged against the shortest route past the block if nothing was in the way.
+     *
+     * @param id            The entrance to check
+     * @param changedBlocks The positions of the blocks that changed
+     * @return True if the path needs reading again
+     */
+    private boolean isPathAffected(int id, Iterable<Vector3i> changedBlocks) {
+        PackedPath path = paths.get(id);
+        if (path == null || path.isEmpty()) {
+            /* Any change might be the one that opens a route */
+            return true;
+        }
+        Vector3i entrance = DefenceField.entrancePos(id);
+        Vector3i centre = DefenceField.fieldCentre();
+        for (Vector3i block : changedBlocks) {
+            /* The same cells the field repairs around the block */
+            for (int x = block.x - 1; x <= block.x + 1; x++) {
+                for (int y = block.y - 1; y <= block.y + 2; y++) {
+                    for (int z = block.z - 1; z <= block.z + 1; z++) {
+                        if (path.indexOf(PackedPath.pack(x, y, z)) != -1) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            int shortestRoute = FlowField.estimateCost(entrance.x - block.x, entrance.y - block.y, entrance.z - block.z)
+                    + FlowField.estimateCost(block.x - centre.x, block.y - centre.y, block.z - centre.z)
+                    - 2 * CHANGE_REACH_COST;
+            if (shortestRoute < path.getCost()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the paths from all the entrances to the centre out of the flow field.
+     * Notifies the shrine of every path that has changed, or that has been found for the first time.
+     */
+    private void updateEntrancePaths() {
+        boolean[] all = new boolean[DefenceField.entranceCount()];
+        Arrays.fill(all, true);
+        updateEntrancePaths(all);
     }
 
     /**
-     * Calculate paths from all the entrances to the centre.
+     * Read the paths from the given entrances to the centre out of the flow field.
+     * The other paths are kept as they are. Notifies the shrine of every path that has changed, or that has been
+     * found for the first time.
+     *
+     * @param stale Which entrances to read the paths of again
      */
-    private void calculatePaths() {
+    private void updateEntrancePaths(boolean[] stale) {
+        List<PackedPath> oldPaths = new ArrayList<>(paths);
+        for (int id = 0; id < DefenceField.entranceCount(); id++) {
+            if (stale[id]) {
+                paths.set(id, pathfinder.getPath(DefenceField.entrancePos(id)));
+            }
+        }
+        indexEntrancePaths();
         for (int id = 0; id < DefenceField.entranceCount(); id++) {
-            calculatePath(id, null);
+            if (!paths.get(id).sameSteps(oldPaths.get(id))) {
+                DefenceField.getShrineEntity().send(new OnEntrancePathChanged(id, paths.get(id)));
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index of every position on the entrance paths, so that new paths join the current ones.
+     */
+    private void indexEntrancePaths() {
+        entrancePathSteps.clear();
+        for (PackedPath path : paths) {
+            if (path == null) {
+                continue;
+            }
+            for (int step = 0; step < path.size(); step++) {
+                entrancePathSteps.putIfAbsent(path.getPacked(step), path);
+            }
         }
     }
 
     /**
      * @return All paths from entrance to centre
      */
-    public List<List<Vector3i>> getPaths() {
+    public List<PackedPath> getPaths() {
         return paths;
     }
 
@@ -189,7 +696,19 @@ public class PathfindingManager extends BaseComponentSystem {
      * @param pathID Which entrance the path should come from
      * @return The given path, or null if it doesn't exist yet.
      */
-    public List<Vector3i> getPath(int pathID) {
+    public PackedPath getPath(int pathID) {
         return paths.get(pathID);
     }
+
+    /**
+     * Get the polyline of a path. Will return null if the path has not been calculated yet.
+     *
+     * @param pathID Which entrance the path should come from
+     * @return The polyline of the given path, or null if it doesn't exist yet.
+     * @see PathPolyline
+     */
+    public PathPolyline getPolyline(int pathID) {
+        PackedPath path = paths.get(pathID);
+        return path != null ? path.getPolyline() : null;
+    }
 }
@@ -18,7 +18,6 @@ package org.terasology.gooeyDefence;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
@@ -30,77 +29,123 @@ import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
 import org.terasology.gooeyDefence.events.tower.TowerChangedEvent;
 import org.terasology.gooeyDefence.events.tower.TowerCreatedEvent;
 import org.terasology.gooeyDefence.events.tower.TowerDestroyedEvent;
+import org.terasology.gooeyDefence.simulation.CoverageListener;
+import org.terasology.gooeyDefence.simulation.SimulationClock;
+import org.terasology.gooeyDefence.simulation.SimulationTickListener;
 import org.terasology.gooeyDefence.towerBlocks.EffectCount;
 import org.terasology.gooeyDefence.towerBlocks.EffectDuration;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
 import org.terasology.gooeyDefence.towerBlocks.base.TowerCore;
 import org.terasology.gooeyDefence.towerBlocks.base.TowerEffector;
 import org.terasology.gooeyDefence.towerBlocks.base.TowerTargeter;
-import org.terasology.logic.delay.DelayManager;
 import org.terasology.logic.delay.PeriodicActionTriggeredEvent;
+import org.terasology.logic.location.LocationComponent;
+import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
+import org.terasology.registry.Share;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * Schedules the attacks of every targeter on every tower, and applies the effects of each attack.
+ * <p>
+ * Each targeter's attacks are a periodic action on the {@link SimulationClock}. The actions only gather the targeters
+ * due to fire, which are then resolved together in a single targeting pass once the clock has triggered every action
+ * of the tick. They are grouped by targeter type, and resolved against the enemy positions of that tick. Each type of
+ * targeter registers a {@link TargetSelector} that is called directly, rather than sending a
+ * {@link SelectEnemiesEvent} for every shot. Targeters without a selector are still sent the event.
+ * <p>
+ * A targeter that finds nothing to attack, with no enemy anywhere on the stretches of path it covers, is put to
+ * sleep and its attacks are no longer scheduled. The {@link EnemyManager} wakes it when an enemy heads into its
+ * coverage, so idle towers cost nothing between waves.
+ */
+@Share(TowerManager.class)
 @RegisterSystem
-public class TowerManager extends BaseComponentSystem {
+public class TowerManager extends BaseComponentSystem implements CoverageListener, SimulationTickListener {
     private static final Logger logger = LoggerFactory.getLogger(TowerManager.class);
 
     @In
-    private DelayManager delayManager;
+    private SimulationClock simulationClock;
     @In
-    private EntityManager entityManager;
+    private EnemyManager enemyManager;
     private Set<EntityRef> towerEntities = new HashSet<>();
+    /**
+     * The tower of each targeter that is asleep, keyed by the targeter.
+     */
+    private Map<EntityRef, EntityRef> sleepingTargeters = new HashMap<>();
 
     /**
-     * Creates the periodic event id for the targeter on a tower
-     *
-     * @param tower    The tower the targeter is on
-     * @param targeter The targeter the event is sending for
-     * @return The id for that periodic action event.
-     * @see PeriodicActionTriggeredEvent
+     * The scheduled attacks of each awake targeter, keyed by the ID of their periodic action.
      */
-    private static String buildEventId(EntityRef tower, EntityRef targeter) {
-        return "towerDefence|" + targeter.getId();
-    }
+    private final Map<String, ScheduledAttack> scheduledAttacks = new HashMap<>();
+    private final Map<Class<? extends TowerTargeter>, TargetSelector<?>> selectors = new HashMap<>();
+    /**
+     * The attacks due this tick, grouped by the type of their targeter. The lists are reused every tick.
+     */
+    private final Map<Class<? extends TowerTargeter>, List<ScheduledAttack>> dueAttacks = new HashMap<>();
+    /**
+     * Reused to collect the targets of each attack.
+     */
+    private final Set<EntityRef> currentTargets = new HashSet<>();
 
     /**
-     * Checks that the periodic event is intended for the given tower.
+     * Creates the periodic action ID for the attacks of a targeter.
      *
-     * @param tower   The tower to check for
-     * @param eventId The id of the periodic event
-     * @return True if the event belongs to the tower
+     * @param targeter The targeter the action is for
+     * @return The ID of the periodic action, which is sent to the targeter's tower
      * @see PeriodicActionTriggeredEvent
      */
-    private static boolean isEventIdCorrect(EntityRef tower, String eventId) {
-        return eventId.startsWith("towerDefence");
+    private static String buildEventId(EntityRef targeter) {
+        return "towerDefence|" + targeter.getId();
     }
 
     /**
-     * Gets the ID of the targeter from the periodic event id.
+     * Checks that a periodic action is one of the attacks scheduled by this system.
      *
-     * @param eventId The id of the periodic event
-     * @return The ID of the targeter entity ref
+     * @param eventId The ID of the periodic action
+     * @return True if the action is a targeter's attacks
      */
-    private static long getTargeterId(String eventId) {
-        String id = eventId.substring(eventId.indexOf('|') + 1);
-        return Long.parseLong(id);
+    private static boolean isEventIdCorrect(String eventId) {
+        return eventId.startsWith("towerDefence|");
+    }
+
+    @Override
+    public void initialise() {
+        enemyManager.addCoverageListener(this);
+        simulationClock.addLateTickListener(this);
     }
 
     /**
-     * Remove all scheduled delays before the game is shutdown.
+     * Remove all scheduled attacks before the game is shutdown.
      */
     @Override
     public void shutdown() {
+        for (ScheduledAttack attack : scheduledAttacks.values()) {
+            simulationClock.cancelPeriodicAction(attack.tower, attack.eventId);
+        }
+        scheduledAttacks.clear();
         for (EntityRef tower : towerEntities) {
-            TowerComponent towerComponent = tower.getComponent(TowerComponent.class);
-            for (EntityRef targeter : towerComponent.targeter) {
-                delayManager.cancelPeriodicAction(tower, buildEventId(tower, targeter));
-            }
             tower.destroy();
         }
     }
 
+    /**
+     * Register the selector used to pick the targets of one type of targeter.
+     * Replaces any selector already registered for that type.
+     *
+     * @param type     The targeter component the selector handles
+     * @param selector The selector to use
+     * @param <T>      The type of the targeter component
+     */
+    public <T extends TowerTargeter> void registerSelector(Class<T> type, TargetSelector<T> selector) {
+        selectors.put(type, selector);
+    }
+
     /**
      * Called when a tower is created.
      * Adds the tower to the list and sets the periodic actions for it's attacks
@@ -114,10 +159,7 @@ public class TowerManager extends BaseComponentSystem {
         towerEntities.add(towerEntity);
         for (EntityRef targeter : towerComponent.targeter) {
             TowerTargeter targeterComponent = DefenceField.getComponentExtending(targeter, TowerTargeter.class);
-            delayManager.addPeriodicAction(towerEntity,
-                    buildEventId(towerEntity, targeter),
-                    targeterComponent.getAttackSpeed(),
-                    targeterComponent.getAttackSpeed());
+            scheduleAttacks(towerEntity, targeter, targeterComponent.getAttackSpeed());
         }
     }
 
@@ -133,11 +175,10 @@ public class TowerManager extends BaseComponentSystem {
     public void onTowerChanged(TowerChangedEvent event, EntityRef towerEntity, TowerComponent towerComponent) {
         for (EntityRef targeter : towerComponent.targeter) {
             if (event.getChangedBlocks().contains(targeter)) {
+                sleepingTargeters.remove(targeter);
+                enemyManager.stopWatching(targeter);
                 TowerTargeter targeterComponent = DefenceField.getComponentExtending(targeter, TowerTargeter.class);
-                delayManager.addPeriodicAction(towerEntity,
-                        buildEventId(towerEntity, targeter),
-                        targeterComponent.getAttackSpeed(),
-                        targeterComponent.getAttackSpeed());
+                scheduleAttacks(towerEntity, targeter, targeterComponent.getAttackSpeed());
             }
         }
     }
@@ -157,22 +198,132 @@ public class TowerManager extends BaseComponentSystem {
     }
 
     /**
-     * Called every attack cycle per targeter.
-     * Checks if the tower can fire, and if so, fires that targeter.
+     * Called when the attacks of a targeter are due.
+     * The attack is gathered into the targeting pass of the current tick, rather than fired straight away.
      * <p>
      * Filters on {@link TowerComponent}
      *
      * @see PeriodicActionTriggeredEvent
      */
     @ReceiveEvent
-    public void onPeriodicActionTriggered(PeriodicActionTriggeredEvent event, EntityRef entity, TowerComponent component) {
-        if (DefenceField.isFieldActivated() && isEventIdCorrect(entity, event.getActionId())) {
-            int corePower = getTotalCorePower(component);
-            int totalDrain = getEffectorDrain(component) + getTargeterDrain(component);
-            if (corePower >= totalDrain) {
-                EntityRef targeter = entityManager.getEntity(getTargeterId(event.getActionId()));
-                handleTowerShooting(component, targeter);
+    public void onPeriodicActionTriggered(PeriodicActionTriggeredEvent event, EntityRef tower,
+                                          TowerComponent component) {
+        if (!DefenceField.isFieldActivated() || !isEventIdCorrect(event.getActionId())) {
+            return;
+        }
+        ScheduledAttack attack = scheduledAttacks.get(event.getActionId());
+        if (attack == null) {
+            return;
+        }
+        if (!attack.targeter.exists()) {
+            cancelAttacks(attack.tower, attack.targeter);
+            return;
+        }
+        attack.targeterComponent = DefenceField.getComponentExtending(attack.targeter, TowerTargeter.class);
+        dueAttacks.computeIfAbsent(attack.targeterComponent.getClass(), type -> new ArrayList<>()).add(attack);
+    }
+
+    /**
+     * Runs the targeting pass for this tick, once every attack due has been gathered.
+     * The attacks are fired grouped by targeter type.
+     *
+     * @param tickLength The length of the tick, in seconds
+     */
+    @Override
+    public void onSimulationTick(float tickLength) {
+        for (Map.Entry<Class<? extends TowerTargeter>, List<ScheduledAttack>> entry : dueAttacks.entrySet()) {
+            TargetSelector<?> selector = selectors.get(entry.getKey());
+            for (ScheduledAttack attack : entry.getValue()) {
+                fireAttack(attack, selector);
+            }
+            entry.getValue().clear();
+        }
+    }
+
+    /**
+     * Checks if the tower can fire, and if so, fires the targeter of the attack.
+     *
+     * @param attack   The attack to fire
+     * @param selector The selector for the type of targeter, or null if there isn't one
+     */
+    private void fireAttack(ScheduledAttack attack, TargetSelector<?> selector) {
+        TowerComponent component = attack.tower.getComponent(TowerComponent.class);
+        /* An earlier attack in the pass may have changed or removed the tower */
+        if (component == null || scheduledAttacks.get(attack.eventId) != attack) {
+            return;
+        }
+        int corePower = getTotalCorePower(component);
+        int totalDrain = getEffectorDrain(component) + getTargeterDrain(component);
+        if (corePower >= totalDrain) {
+            handleTowerShooting(component, attack, selector);
+            if (currentTargets.isEmpty()) {
+                trySleep(attack.tower, attack.targeter);
             }
+            currentTargets.clear();
+        }
+    }
+
+    /**
+     * Called when an enemy heads into the coverage of a sleeping targeter.
+     * Schedules the targeter's attacks again, with the first attack in the current tick.
+     *
+     * @param targeter The targeter to wake
+     */
+    @Override
+    public void onTargeterWoken(EntityRef targeter) {
+        EntityRef tower = sleepingTargeters.remove(targeter);
+        if (tower != null && tower.exists() && targeter.exists()) {
+            scheduleAttacks(tower, targeter, 0);
+        }
+    }
+
+    /**
+     * Schedules the periodic attacks of a targeter, replacing any already scheduled.
+     *
+     * @param tower        The tower the targeter is on
+     * @param targeter     The targeter to schedule
+     * @param initialDelay How long to wait before the first attack, in milliseconds
+     */
+    private void scheduleAttacks(EntityRef tower, EntityRef targeter, long initialDelay) {
+        TowerTargeter targeterComponent = DefenceField.getComponentExtending(targeter, TowerTargeter.class);
+        LocationComponent locationComponent = targeter.getComponent(LocationComponent.class);
+        String eventId = buildEventId(targeter);
+        scheduledAttacks.put(eventId, new ScheduledAttack(tower,
+                targeter,
+                eventId,
+                locationComponent != null ? locationComponent.getWorldPosition() : new Vector3f()));
+        simulationClock.addPeriodicAction(tower, eventId, initialDelay, targeterComponent.getAttackSpeed());
+    }
+
+    /**
+     * Stops the attacks of a targeter being scheduled.
+     * Does nothing if the targeter has no attacks scheduled.
+     *
+     * @param tower    The tower the targeter is on
+     * @param targeter The targeter to cancel
+     */
+    private void cancelAttacks(EntityRef tower, EntityRef targeter) {
+        String eventId = buildEventId(targeter);
+        scheduledAttacks.remove(eventId);
+        simulationClock.cancelPeriodicAction(tower, eventId);
+    }
+
+    /**
+     * Puts a targeter to sleep if no enemy could come into its range without first being noticed.
+     * Its attacks stop being scheduled until it is woken.
+     *
+     * @param tower    The tower the targeter is on
+     * @param targeter The targeter that found nothing to attack
+     */
+    private void trySleep(EntityRef tower, EntityRef targeter) {
+        TowerTargeter targeterComponent = DefenceField.getComponentExtending(targeter, TowerTargeter.class);
+        LocationComponent locationComponent = targeter.getComponent(LocationComponent.class);
+        if (locationComponent != null && enemyManager.sleepUntilCovered(targeter,
+                locationComponent.getWorldPosition(),
+                targeterComponent.getMinimumRange(),
+                targeterComponent.getRange())) {
+            cancelAttacks(tower, targeter);
+            sleepingTargeters.put(targeter, tower);
         }
     }
 
@@ -185,7 +336,9 @@ public class TowerManager extends BaseComponentSystem {
      */
     private void handleTargeterRemoval(EntityRef tower, EntityRef targeter) {
 
-        delayManager.cancelPeriodicAction(tower, buildEventId(tower, targeter));
+        cancelAttacks(tower, targeter);
+        sleepingTargeters.remove(targeter);
+        enemyManager.stopWatching(targeter);
 
         TowerComponent towerComponent = tower.getComponent(TowerComponent.class);
         TowerTargeter targeterComponent = DefenceField.getComponentExtending(targeter, TowerTargeter.class);
@@ -241,30 +394,47 @@ public class TowerManager extends BaseComponentSystem {
 
     /**
      * Handles the steps involved in making a targeter shoot.
+     * The targets are collected into the current targets set, which is cleared by the caller once it is done.
      *
      * @param towerComponent The TowerComponent of the tower entity shooting.
-     * @param targeter       The targeter that's shooting
+     * @param attack         The attack of the targeter that's shooting
+     * @param selector       The selector for the type of targeter, or null if there isn't one
      */
-    private void handleTowerShooting(TowerComponent towerComponent, EntityRef targeter) {
-        Set<EntityRef> currentTargets = getTargetedEnemies(targeter);
-        TowerTargeter towerTargeter = DefenceField.getComponentExtending(targeter, TowerTargeter.class);
+    private void handleTowerShooting(TowerComponent towerComponent, ScheduledAttack attack,
+                                     TargetSelector<?> selector) {
+        TowerTargeter towerTargeter = attack.targeterComponent;
+        selectTargets(attack, towerTargeter, selector);
 
         applyEffectsToTargets(towerComponent.effector, currentTargets, towerTargeter);
 
-        towerTargeter.setAffectedEnemies(currentTargets);
+        Set<EntityRef> affectedEnemies = towerTargeter.getAffectedEnemies();
+        affectedEnemies.clear();
+        affectedEnemies.addAll(currentTargets);
     }
 
     /**
-     * Calls on the targeter to obtain the enemies it's targeting.
+     * Obtains the enemies a targeter is targeting, adding them to the current targets set.
+     * Uses the selector registered for the targeter's type if there is one, and otherwise sends the targeter a
+     * {@link SelectEnemiesEvent}.
      *
-     * @param targeter The targeter to call on
-     * @return All entities targeted by that targeter.
+     * @param attack         The attack of the targeter that's shooting
+     * @param towerTargeter  The targeter component on the targeter
+     * @param selector       The selector registered for the type of the targeter component, or null
+     * @param <T>            The type of the targeter component
      * @see TowerTargeter
      */
-    private Set<EntityRef> getTargetedEnemies(EntityRef targeter) {
-        SelectEnemiesEvent shootEvent = new SelectEnemiesEvent();
-        targeter.send(shootEvent);
-        return shootEvent.getTargets();
+    @SuppressWarnings("unchecked")
+    private <T extends TowerTargeter> void selectTargets(ScheduledAttack attack, T towerTargeter,
+                                                         TargetSelector<?> selector) {
+        if (selector != null) {
+            /* Selectors are registered against the exact class of the component they handle */
+            ((TargetSelector<T>) selector).selectTargets(attack.targeter, attack.position, towerTargeter,
+                    currentTargets);
+        } else {
+            SelectEnemiesEvent shootEvent = new SelectEnemiesEvent();
+            attack.targeter.send(shootEvent);
+            currentTargets.addAll(shootEvent.getTargets());
+        }
     }
 
     /**
@@ -342,4 +512,31 @@ public class TowerManager extends BaseComponentSystem {
             }
         }
     }
+
+    /**
+     * The attacks of a single targeter.
+     */
+    private static final class ScheduledAttack {
+        private final EntityRef tower;
+        private final EntityRef targeter;
+        /**
+         * The ID of the periodic action the attacks are triggered by.
+         */
+        private final String eventId;
+        /**
+         * The position of the targeter. Towers never move, so this is only read once.
+         */
+        private final Vector3f position;
+        /**
+         * The targeter component, looked up when the attack is gathered for the current pass.
+         */
+        private TowerTargeter targeterComponent;
+
+        private ScheduledAttack(EntityRef tower, EntityRef targeter, String eventId, Vector3f position) {
+            this.tower = tower;
+            this.targeter = targeter;
+            this.eventId = eventId;
+            this.position = position;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 package org.terasology.gooeyDefence.components;
 
 import org.terasology.entitySystem.Component;
+import org.terasology.gooeyDefence.pathfinding.RebuildMode;
 import org.terasology.world.block.ForceBlockActive;
 
 /**
@@ -24,4 +25,12 @@ import org.terasology.world.block.ForceBlockActive;
  */
 @ForceBlockActive
 public class ShrineComponent implements Component {
+    /**
+     * How the pathfinding for the field is rebuilt from scratch.
+     */
+    public RebuildMode rebuildMode = RebuildMode.BACKGROUND;
+    /**
+     * How long a time sliced rebuild may run for each tick, in milliseconds.
+     */
+    public float rebuildBudget = 2;
 }
@@ -15,20 +15,22 @@
  */
 package org.terasology.gooeyDefence.components.enemies;
 
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
 import org.terasology.math.geom.Vector3i;
 
-import java.util.List;
-
 /**
  * Moves the enemy along a path stored internally in the component.
  * <p>
  * Used for enemies that don't follow the standard entrance path.
+ * The path is shared with any other enemies given the same path, and is not saved. Enemies loaded with this
+ * component are re-pathed when the field is activated.
  *
  * @see EntrancePathComponent
  */
 public class CustomPathComponent implements PathComponent {
-    private List<Vector3i> path;
+    private transient PackedPath path;
     private int step;
+    private Vector3i goal;
 
     /**
      * Empty constructor for deserialisation.
@@ -36,9 +38,10 @@ public class CustomPathComponent implements PathComponent {
     private CustomPathComponent() {
     }
 
-    public CustomPathComponent(List<Vector3i> path) {
+    public CustomPathComponent(PackedPath path) {
         this.path = path;
         this.step = path.size() - 1;
+        goal = path.get(step);
     }
 
 
@@ -49,13 +52,21 @@ public class CustomPathComponent implements PathComponent {
 
     @Override
     public Vector3i getGoal() {
-        return path.get(step);
+        return goal;
     }
 
     @Override
     public void nextStep() {
         step--;
         step = Math.min(Math.max(0, step), path.size() - 1);
+        goal.set(path.getX(step), path.getY(step), path.getZ(step));
+    }
+
+    /**
+     * @return The path this component is following, or null if it was not restored after loading
+     */
+    public PackedPath getPath() {
+        return path;
     }
 
     @Override
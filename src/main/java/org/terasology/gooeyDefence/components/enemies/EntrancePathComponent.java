@@ -15,11 +15,11 @@
  */
 package org.terasology.gooeyDefence.components.enemies;
 
+import org.terasology.gooeyDefence.DefenceField;
 import org.terasology.gooeyDefence.PathfindingManager;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
 import org.terasology.math.geom.Vector3i;
 
-import java.util.List;
-
 /**
  * Moves the enemy along a path from an entrance to the shrine.
  * <p>
@@ -60,11 +60,25 @@ public class EntrancePathComponent implements PathComponent {
         goal = pathManager.getPath(entranceId).get(step);
     }
 
+    /**
+     * Create a new entrance path component starting at the beginning of the path.
+     * <p>
+     * If the path hasn't been found yet the enemy waits at the entrance, and is moved onto the path once it has been.
+     *
+     * @param entranceId  The ID of the entrance
+     * @param pathManager The PathfindingManager the path is stored in
+     */
     public EntrancePathComponent(int entranceId, PathfindingManager pathManager) {
         this.entranceId = entranceId;
         this.pathManager = pathManager;
-        step = pathManager.getPath(entranceId).size() - 1;
-        goal = pathManager.getPath(entranceId).get(step);
+        PackedPath path = pathManager.getPath(entranceId);
+        if (path == null || path.isEmpty()) {
+            step = 0;
+            goal = new Vector3i(DefenceField.entrancePos(entranceId));
+        } else {
+            step = path.size() - 1;
+            goal = path.get(step);
+        }
     }
 
     /**
@@ -89,11 +103,13 @@ public class EntrancePathComponent implements PathComponent {
 
     @Override
     public void nextStep() {
-        List<Vector3i> path = pathManager.getPath(entranceId);
+        PackedPath path = pathManager.getPath(entranceId);
+        if (path == null || path.isEmpty()) {
+            return;
+        }
         step--;
         step = Math.min(Math.max(0, step), path.size() - 1);
-        goal = path.get(step);
-
+        goal.set(path.getX(step), path.getY(step), path.getZ(step));
     }
 
     /**
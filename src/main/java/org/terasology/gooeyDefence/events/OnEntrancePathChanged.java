@@ -15,35 +15,48 @@
  */
 package org.terasology.gooeyDefence.events;
 
+import gnu.trove.map.TIntIntMap;
 import org.terasology.entitySystem.event.Event;
 import org.terasology.gooeyDefence.PathfindingManager;
-import org.terasology.math.geom.Vector3i;
-
-import java.util.List;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.math.geom.BaseVector3i;
 
 /**
  * Event sent when an entrance path is changed.
  * <p>
  * This event is not sent when other non-entrance paths are changed.
+ * <p>
+ * Carries an index from each position on the new path to its step, so that any position can be found on the new
+ * path in constant time.
  *
  * @see PathfindingManager
  */
 public class OnEntrancePathChanged implements Event {
     private int pathId;
-    private List<Vector3i> newPath;
+    private PackedPath newPath;
+    private TIntIntMap stepIndex;
 
-    public OnEntrancePathChanged(int pathId, List<Vector3i> newPath) {
+    public OnEntrancePathChanged(int pathId, PackedPath newPath) {
         this.pathId = pathId;
         this.newPath = newPath;
+        stepIndex = newPath.getStepIndex();
     }
 
     /**
      * @return The new path that was changed.
      */
-    public List<Vector3i> getNewPath() {
+    public PackedPath getNewPath() {
         return newPath;
     }
 
+    /**
+     * @param position The position to look for
+     * @return The step of the new path at that position, or -1 if the new path doesn't pass through it
+     */
+    public int getNewStep(BaseVector3i position) {
+        return stepIndex.get(PackedPath.pack(position.x(), position.y(), position.z()));
+    }
+
     /**
      * @return The ID of the path that was changed.
      */
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of cell indices, ordered by cost.
+ * <p>
+ * Entries are held in primitive arrays so that a search doesn't allocate per cell.
+ * There is no decrease-key operation. A cell whose cost drops is added again, and the caller skips
+ * any stale entries when they are polled.
+ *
+ * @see FlowField
+ */
+public class CellQueue {
+    private int[] cells = new int[256];
+    private int[] costs = new int[256];
+    private int size;
+
+    /**
+     * Add a cell to the queue.
+     *
+     * @param cell The index of the cell
+     * @param cost The cost to order the cell by
+     */
+    public void add(int cell, int cost) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+            costs = Arrays.copyOf(costs, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (costs[parent] <= cost) {
+                break;
+            }
+            cells[index] = cells[parent];
+            costs[index] = costs[parent];
+            index = parent;
+        }
+        cells[index] = cell;
+        costs[index] = cost;
+    }
+
+    /**
+     * @return The cost of the cell at the front of the queue. The queue must not be empty.
+     */
+    public int peekCost() {
+        return costs[0];
+    }
+
+    /**
+     * Remove the cell with the lowest cost from the queue.
+     * The queue must not be empty.
+     *
+     * @return The index of the removed cell
+     */
+    public int poll() {
+        int result = cells[0];
+        size--;
+        int cell = cells[size];
+        int cost = costs[size];
+        int index = 0;
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && costs[child + 1] < costs[child]) {
+                child++;
+            }
+            if (costs[child] >= cost) {
+                break;
+            }
+            cells[index] = cells[child];
+            costs[index] = costs[child];
+            index = child;
+        }
+        cells[index] = cell;
+        costs[index] = cost;
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
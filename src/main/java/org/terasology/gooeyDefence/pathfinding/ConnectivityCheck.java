@@ -0,0 +1,324 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.TIntSet;
+import org.terasology.math.geom.BaseVector3i;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.terasology.gooeyDefence.pathfinding.FlowField.NEIGHBOURS;
+
+/**
+ * Checks whether changing some blocks could cut the field in two, by only looking at the blocks around the change.
+ * <p>
+ * Moves between two cells only depend on the blocks next to them, so a window is taken around the changed blocks
+ * whose outer shell is unaffected by the change. Any route through the field that passes through the window enters
+ * and leaves through that shell. If every pair of shell cells that were connected inside the window before the change
+ * still are afterwards, every such route can be diverted inside the window, and so nothing has been disconnected.
+ * <p>
+ * The check is conservative. A failure only means the change can't be proven safe locally, and a wider search is
+ * needed to be sure, such as {@link #canReach(BaseVector3i, TIntSet, int)}. Movement in the field is symmetric, so
+ * connectivity is found with a simple flood fill.
+ * <p>
+ * The check runs in two phases around the change, so that it can read the live walkability map rather than a copy.
+ * The window is labelled by {@link #begin(Iterable, Iterable)} before the change is made, and labelled again and
+ * compared by {@link #isLocallySafe()} once it has been.
+ *
+ * @see EnemyWalkingPlugin
+ */
+public class ConnectivityCheck {
+    /**
+     * How far beyond each changed block the moves of a cell can depend on it, below and above.
+     */
+    private static final int REACH_BELOW = 1;
+    private static final int REACH_ABOVE = 2;
+
+    private final EnemyWalkingPlugin plugin;
+    private final int centreX;
+    private final int centreZ;
+    private final int fieldMinX;
+    private final int fieldMinY;
+    private final int fieldMinZ;
+    private final int fieldMaxX;
+    private final int fieldMaxY;
+    private final int fieldMaxZ;
+
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int sizeX;
+    private int sizeY;
+    private int sizeZ;
+    /**
+     * The labels of the window before the change, or null if the change doesn't need comparing.
+     */
+    private int[] beforeComponents;
+    private final TIntArrayList stack = new TIntArrayList();
+
+    /**
+     * @param plugin  The movement rules, which must reflect the change once it has been made
+     * @param centreX The x position of the centre of the field
+     * @param centreZ The z position of the centre of the field
+     * @param radius  The horizontal distance from the centre to the edge of the field
+     * @param minY    The lowest layer enemies could travel through
+     * @param height  The number of layers enemies could travel through
+     */
+    public ConnectivityCheck(EnemyWalkingPlugin plugin, int centreX, int centreZ, int radius, int minY, int height) {
+        this.plugin = plugin;
+        this.centreX = centreX;
+        this.centreZ = centreZ;
+        fieldMinX = centreX - radius;
+        fieldMinZ = centreZ - radius;
+        fieldMinY = minY;
+        fieldMaxX = centreX + radius;
+        fieldMaxZ = centreZ + radius;
+        fieldMaxY = minY + height - 1;
+    }
+
+    /**
+     * Label the window around some blocks, before they change.
+     *
+     * @param changedBlocks The positions of the blocks that will change
+     * @param endpoints     Positions that routes start or end at, such as the shrine and the entrances. If any lies
+     *                      inside the window, the change can't be checked locally.
+     * @return False if the change can't be checked locally, and a full search is needed
+     */
+    public boolean begin(Iterable<? extends BaseVector3i> changedBlocks, Iterable<? extends BaseVector3i> endpoints) {
+        beforeComponents = null;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        minZ = Integer.MAX_VALUE;
+        for (BaseVector3i block : changedBlocks) {
+            /* One past the cells affected by the block, so that the shell of the window isn't affected */
+            minX = Math.min(minX, block.x() - 2);
+            minY = Math.min(minY, block.y() - REACH_BELOW - 1);
+            minZ = Math.min(minZ, block.z() - 2);
+            maxX = Math.max(maxX, block.x() + 2);
+            maxY = Math.max(maxY, block.y() + REACH_ABOVE + 1);
+            maxZ = Math.max(maxZ, block.z() + 2);
+        }
+        if (minX > maxX) {
+            return true;
+        }
+        minX = Math.max(minX, fieldMinX);
+        minY = Math.max(minY, fieldMinY);
+        minZ = Math.max(minZ, fieldMinZ);
+        maxX = Math.min(maxX, fieldMaxX);
+        maxY = Math.min(maxY, fieldMaxY);
+        maxZ = Math.min(maxZ, fieldMaxZ);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            /* The change is entirely outside the field */
+            return true;
+        }
+        sizeX = maxX - minX + 1;
+        sizeY = maxY - minY + 1;
+        sizeZ = maxZ - minZ + 1;
+        for (BaseVector3i endpoint : endpoints) {
+            if (contains(endpoint.x(), endpoint.y(), endpoint.z())) {
+                return false;
+            }
+        }
+        beforeComponents = label();
+        return true;
+    }
+
+    /**
+     * Check whether the change keeps everything around it connected.
+     * Must be called once the change has been made, after a successful call to {@link #begin(Iterable, Iterable)}.
+     *
+     * @return True if the change is certain not to disconnect anything, false if a full search is needed
+     */
+    public boolean isLocallySafe() {
+        if (beforeComponents == null) {
+            return true;
+        }
+        int[] afterComponents = label();
+        /* Each component before the change must map onto a single component afterwards, at least on the shell */
+        int[] mapping = new int[beforeComponents.length];
+        Arrays.fill(mapping, -1);
+        for (int cell = 0; cell < beforeComponents.length; cell++) {
+            int component = beforeComponents[cell];
+            if (component == -1 || !isOnShell(cell)) {
+                continue;
+            }
+            /* A shell cell cut off inside the window is only fine if it was the only one in its component */
+            int newComponent = afterComponents[cell] != -1 ? afterComponents[cell] : -2 - cell;
+            if (mapping[component] == -1) {
+                mapping[component] = newComponent;
+            } else if (mapping[component] != newComponent) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Search the whole field from a position until one of the goals is found, visiting at most a limited number of
+     * cells. Cells closer to the centre of the field are searched first, as that is where the goals usually lie.
+     * <p>
+     * Unlike the local check, this reads the field as it currently is, so it can be run on its own after a change.
+     *
+     * @param start The position to search from
+     * @param goals The packed positions to look for
+     * @param limit The most cells the search may visit
+     * @return True if a goal was found, false if none can be reached or none was found within the limit
+     * @see PackedPath#pack(int, int, int)
+     */
+    public boolean canReach(BaseVector3i start, TIntSet goals, int limit) {
+        if (!isInField(start.x(), start.y(), start.z())) {
+            return false;
+        }
+        BitSet visited = new BitSet();
+        CellQueue queue = new CellQueue();
+        visited.set(fieldIndex(start.x(), start.y(), start.z()));
+        queue.add(PackedPath.pack(start.x(), start.y(), start.z()), 0);
+        int count = 0;
+        while (!queue.isEmpty() && count++ < limit) {
+            int packed = queue.poll();
+            if (goals.contains(packed)) {
+                return true;
+            }
+            int x = PackedPath.unpackX(packed);
+            int y = PackedPath.unpackY(packed);
+            int z = PackedPath.unpackZ(packed);
+            for (int[] offset : NEIGHBOURS) {
+                int neighbourX = x + offset[0];
+                int neighbourY = y + offset[1];
+                int neighbourZ = z + offset[2];
+                if (!isInField(neighbourX, neighbourY, neighbourZ)) {
+                    continue;
+                }
+                int neighbour = fieldIndex(neighbourX, neighbourY, neighbourZ);
+                if (!visited.get(neighbour) && plugin.isReachable(x, y, z, neighbourX, neighbourY, neighbourZ)) {
+                    visited.set(neighbour);
+                    queue.add(PackedPath.pack(neighbourX, neighbourY, neighbourZ),
+                            FlowField.estimateCost(neighbourX - centreX, 0, neighbourZ - centreZ));
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Flood fill the window, giving every group of cells connected inside it the same label.
+     *
+     * @return The label of each cell in the window, or -1 for cells that can't be moved to or from
+     */
+    private int[] label() {
+        int[] labels = new int[sizeX * sizeY * sizeZ];
+        Arrays.fill(labels, -1);
+        int nextLabel = 0;
+        for (int root = 0; root < labels.length; root++) {
+            if (labels[root] != -1 || !hasMove(root)) {
+                continue;
+            }
+            labels[root] = nextLabel;
+            stack.resetQuick();
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                int cell = stack.removeAt(stack.size() - 1);
+                int x = cellX(cell);
+                int y = cellY(cell);
+                int z = cellZ(cell);
+                for (int[] offset : NEIGHBOURS) {
+                    int neighbourX = x + offset[0];
+                    int neighbourY = y + offset[1];
+                    int neighbourZ = z + offset[2];
+                    if (!contains(neighbourX, neighbourY, neighbourZ)) {
+                        continue;
+                    }
+                    int neighbour = index(neighbourX, neighbourY, neighbourZ);
+                    if (labels[neighbour] == -1 && plugin.isReachable(x, y, z, neighbourX, neighbourY, neighbourZ)) {
+                        labels[neighbour] = nextLabel;
+                        stack.add(neighbour);
+                    }
+                }
+            }
+            nextLabel++;
+        }
+        return labels;
+    }
+
+    /**
+     * @return True if any move into the cell is possible from inside the window
+     */
+    private boolean hasMove(int cell) {
+        int x = cellX(cell);
+        int y = cellY(cell);
+        int z = cellZ(cell);
+        for (int[] offset : NEIGHBOURS) {
+            int neighbourX = x + offset[0];
+            int neighbourY = y + offset[1];
+            int neighbourZ = z + offset[2];
+            if (contains(neighbourX, neighbourY, neighbourZ)
+                    && plugin.isReachable(x, y, z, neighbourX, neighbourY, neighbourZ)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The shell is every cell on the side of the window, except where the window is cut off by the edge of the field.
+     */
+    private boolean isOnShell(int cell) {
+        int x = cellX(cell);
+        int y = cellY(cell);
+        int z = cellZ(cell);
+        return (x == minX && x != fieldMinX) || (x == minX + sizeX - 1 && x != fieldMaxX)
+                || (y == minY && y != fieldMinY) || (y == minY + sizeY - 1 && y != fieldMaxY)
+                || (z == minZ && z != fieldMinZ) || (z == minZ + sizeZ - 1 && z != fieldMaxZ);
+    }
+
+    private boolean isInField(int x, int y, int z) {
+        return x >= fieldMinX && x <= fieldMaxX
+                && y >= fieldMinY && y <= fieldMaxY
+                && z >= fieldMinZ && z <= fieldMaxZ;
+    }
+
+    private int fieldIndex(int x, int y, int z) {
+        return ((x - fieldMinX) * (fieldMaxY - fieldMinY + 1) + (y - fieldMinY)) * (fieldMaxZ - fieldMinZ + 1)
+                + (z - fieldMinZ);
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return x >= minX && x < minX + sizeX
+                && y >= minY && y < minY + sizeY
+                && z >= minZ && z < minZ + sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+    }
+
+    private int cellX(int cell) {
+        return cell / (sizeY * sizeZ) + minX;
+    }
+
+    private int cellY(int cell) {
+        return (cell / sizeZ) % sizeY + minY;
+    }
+
+    private int cellZ(int cell) {
+        return cell % sizeZ + minZ;
+    }
+}
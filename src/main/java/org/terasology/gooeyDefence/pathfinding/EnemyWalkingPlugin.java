@@ -16,45 +16,115 @@
 package org.terasology.gooeyDefence.pathfinding;
 
 import org.terasology.flexiblepathfinding.plugins.basic.WalkingPlugin;
-import org.terasology.math.Region3i;
 import org.terasology.math.geom.Vector3i;
 import org.terasology.world.WorldProvider;
 
 /**
  * Plugin that defines how the standard enemies will walk.
  * This plugin allows enemies to move horizontally and vertically
+ * <p>
+ * Reachability is answered from a {@link WalkabilityMap} rather than the world, so checking a move doesn't touch the
+ * world or allocate any objects.
+ * <p>
+ * On flat ground, moves can be checked against a 2D grid of open columns instead. This gives the same result as the
+ * full check, but only needs a single lookup per column.
+ *
+ * @see WalkabilityMap
  */
 public class EnemyWalkingPlugin extends WalkingPlugin {
-    public EnemyWalkingPlugin(WorldProvider world, float width, float height) {
+    private final WalkabilityMap walkabilityMap;
+    /**
+     * The offsets of every block the enemy occupies, relative to its position, as x, y and z triples.
+     */
+    private final int[][] occupiedOffsets;
+    /**
+     * True if the enemy only occupies the block at its position, which the 2D checks rely on.
+     */
+    private final boolean singleBlock;
+
+    public EnemyWalkingPlugin(WorldProvider world, WalkabilityMap walkabilityMap, float width, float height) {
         super(world, width, height);
+        this.walkabilityMap = walkabilityMap;
+        int count = 0;
+        for (Vector3i ignored : getOccupiedRegionRelative()) {
+            count++;
+        }
+        occupiedOffsets = new int[count][];
+        int i = 0;
+        for (Vector3i offset : getOccupiedRegionRelative()) {
+            occupiedOffsets[i++] = new int[]{offset.x, offset.y, offset.z};
+        }
+        singleBlock = count == 1
+                && occupiedOffsets[0][0] == 0 && occupiedOffsets[0][1] == 0 && occupiedOffsets[0][2] == 0;
     }
 
     @Override
     public boolean isReachable(Vector3i to, Vector3i from) {
-        return !to.equals(from)
-                && (isHorizontallyReachable(to, from) || isVerticallyReachable(to, from))
-                && isWalkable(to, from)
-                && areAllBlocksPenetrable(to, from);
+        return isReachable(to.x, to.y, to.z, from.x, from.y, from.z);
     }
 
     /**
-     * Checks that all the blocks the enemy will pass through are penetrable.
+     * Checks if the enemy can move directly from one position to another.
+     * Uses only primitives, so that it can be called for every cell of a search without allocating.
      *
-     * @param to   The ending position
-     * @param from The starting position
-     * @return True if all the blocks are penetrable.
+     * @return True if the movement is possible
+     * @see #isReachable(Vector3i, Vector3i)
+     */
+    public boolean isReachable(int toX, int toY, int toZ, int fromX, int fromY, int fromZ) {
+        int distanceSquared = (toX - fromX) * (toX - fromX)
+                + (toY - fromY) * (toY - fromY)
+                + (toZ - fromZ) * (toZ - fromZ);
+        return distanceSquared != 0
+                && (isHorizontallyReachable(toY, fromY, distanceSquared) || isVerticallyReachable(toY, fromY, distanceSquared))
+                && isWalkable(toX, toY, toZ, fromX, fromY, fromZ)
+                && areAllBlocksPenetrable(toX, toY, toZ, fromX, fromY, fromZ);
+    }
+
+    /**
+     * Checks if moves into a position can be checked with {@link #isFlatReachable(int, int, int, int)}.
+     * Moves into the block above are always possible from flat ground, and there is no layer below.
+     *
+     * @return True if the position is on flat ground
+     * @see WalkabilityMap#isFlatGround(int, int, int)
      */
-    private boolean areAllBlocksPenetrable(Vector3i to, Vector3i from) {
-        for (Vector3i relativePosition : getOccupiedRegionRelative()) {
+    public boolean isOnFlatGround(int x, int y, int z) {
+        return singleBlock && walkabilityMap.isFlatGround(x, y, z);
+    }
 
-            /* The start/stop for this block in the occupied region */
-            Vector3i occupiedRegionStart = new Vector3i(to).add(relativePosition);
-            Vector3i occupiedRegionEnd = new Vector3i(from).add(relativePosition);
+    /**
+     * Checks if the enemy can move horizontally between two positions on the same layer of flat ground.
+     * The position moved to must be on flat ground. Diagonal moves also need both columns they cut past to be open.
+     *
+     * @return True if the movement is possible
+     * @see #isOnFlatGround(int, int, int)
+     */
+    public boolean isFlatReachable(int toX, int toZ, int fromX, int fromZ) {
+        return walkabilityMap.isOpenColumn(fromX, fromZ)
+                && (toX == fromX || toZ == fromZ
+                || walkabilityMap.isOpenColumn(toX, fromZ) && walkabilityMap.isOpenColumn(fromX, toZ));
+    }
 
-            Region3i movementBounds = Region3i.createBounded(occupiedRegionStart, occupiedRegionEnd);
-            for (Vector3i block : movementBounds) {
-                if (!world.getBlock(block).isPenetrable()) {
-                    return false;
+    /**
+     * Checks that all the blocks the enemy will pass through are penetrable.
+     *
+     * @return True if all the blocks are penetrable.
+     */
+    private boolean areAllBlocksPenetrable(int toX, int toY, int toZ, int fromX, int fromY, int fromZ) {
+        for (int[] offset : occupiedOffsets) {
+            /* The bounds of the movement for this block in the occupied region */
+            int minX = Math.min(toX, fromX) + offset[0];
+            int minY = Math.min(toY, fromY) + offset[1];
+            int minZ = Math.min(toZ, fromZ) + offset[2];
+            int maxX = Math.max(toX, fromX) + offset[0];
+            int maxY = Math.max(toY, fromY) + offset[1];
+            int maxZ = Math.max(toZ, fromZ) + offset[2];
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        if (!walkabilityMap.isPenetrable(x, y, z)) {
+                            return false;
+                        }
+                    }
                 }
             }
         }
@@ -65,46 +135,36 @@ public class EnemyWalkingPlugin extends WalkingPlugin {
      * When travelling horizontally, the enemy can travel along all 8 horizonatal directions.
      * That is, the enemy can travel diagonally as well as cardinally.
      *
-     * @param to   The ending position
-     * @param from The starting position
+     * @param toY             The ending height
+     * @param fromY           The starting height
+     * @param distanceSquared The squared distance between the positions
      * @return True if the movement is horizontally possible.
      */
-    private boolean isHorizontallyReachable(Vector3i to, Vector3i from) {
-        return isMovementHorizontal(to, from) && to.distanceSquared(from) <= 2;
+    private boolean isHorizontallyReachable(int toY, int fromY, int distanceSquared) {
+        return toY == fromY && distanceSquared <= 2;
     }
 
     /**
      * When travelling vertically, the enemy can only go directly up or down.
      * That is, they cannot travel diagonally
      *
-     * @param to   The ending position
-     * @param from The starting position
+     * @param toY             The ending height
+     * @param fromY           The starting height
+     * @param distanceSquared The squared distance between the positions
      * @return True if the movement is vertically possible.
      */
-    private boolean isVerticallyReachable(Vector3i to, Vector3i from) {
-        return !isMovementHorizontal(to, from) && to.distanceSquared(from) <= 1;
+    private boolean isVerticallyReachable(int toY, int fromY, int distanceSquared) {
+        return toY != fromY && distanceSquared <= 1;
     }
 
     /**
      * Check if the movement is walkable.
      * <p>
+     * A movement is walkable if the enemy is standing on a block at either end.
      *
-     * @param to   The ending position
-     * @param from The starting position
      * @return True if the the movement is walkable
      */
-    private boolean isWalkable(Vector3i to, Vector3i from) {
-        return isWalkable(to) || isWalkable(from);
-    }
-
-    /**
-     * Checks if the movement is strictly horizontal
-     *
-     * @param to   The ending position
-     * @param from The starting position
-     * @return True if both positions are at the same height.
-     */
-    private boolean isMovementHorizontal(Vector3i to, Vector3i from) {
-        return to.y == from.y;
+    private boolean isWalkable(int toX, int toY, int toZ, int fromX, int fromY, int fromZ) {
+        return walkabilityMap.isWalkable(toX, toY, toZ) || walkabilityMap.isWalkable(fromX, fromY, fromZ);
     }
 }
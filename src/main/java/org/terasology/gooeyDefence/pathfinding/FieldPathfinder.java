@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import gnu.trove.map.TIntObjectMap;
+import org.terasology.math.geom.BaseVector3i;
+
+/**
+ * Finds paths from anywhere in the defence field to its centre.
+ * <p>
+ * Implementations are built once from scratch, either in one go or in slices, and then repaired as blocks change.
+ * A build may be run away from the main thread, as long as the movement rules it uses aren't changed whilst it runs.
+ * Paths produced use step zero as the end, the same as all other paths.
+ *
+ * @see FlowField
+ * @see HierarchicalPathfinder
+ */
+public interface FieldPathfinder {
+    EnemyWalkingPlugin getPlugin();
+
+    /**
+     * Change the movement rules used by any later builds, repairs or queries.
+     *
+     * @param plugin The new movement rules to follow
+     */
+    void setPlugin(EnemyWalkingPlugin plugin);
+
+    /**
+     * Build from scratch in one go.
+     * The build stops early if the thread running it is interrupted.
+     *
+     * @return True if the build finished, false if it was interrupted
+     */
+    boolean calculate();
+
+    /**
+     * Clear everything and start a new build.
+     * Nothing is built until the build is resumed.
+     *
+     * @see #resume(long)
+     */
+    void reset();
+
+    /**
+     * Continue the build for at most the given amount of time.
+     *
+     * @param budgetNanos How long the build may run for, in nanoseconds
+     * @return True if the build has finished
+     */
+    boolean resume(long budgetNanos);
+
+    /**
+     * Continue past the end of the build, until everything a later repair could need has been found.
+     * Repairs are only bounded by the size of the change once this has finished.
+     * Stops early if the thread running it is interrupted.
+     *
+     * @param budgetNanos How long it may run for, in nanoseconds, or a negative value for no limit
+     * @return True if nothing is left to find
+     */
+    boolean complete(long budgetNanos);
+
+    /**
+     * @return True if the build has finished
+     */
+    boolean isCalculated();
+
+    /**
+     * Repair after some blocks have changed.
+     *
+     * @param changedBlocks The positions of the blocks that changed
+     */
+    void update(Iterable<? extends BaseVector3i> changedBlocks);
+
+    /**
+     * Obtain the path from a position to the centre of the field.
+     *
+     * @param start The position to start from
+     * @return The path, with step zero as the centre. Empty if the centre can't be reached from the position.
+     */
+    PackedPath getPath(BaseVector3i start);
+
+    /**
+     * Obtain the path from a position to the centre of the field, sharing the end of an existing path if possible.
+     * <p>
+     * Once the path reaches a position on one of the given paths, it follows the rest of that path to the centre.
+     * That section is shared with the existing path rather than copied. The given paths must have been read from
+     * this pathfinder since it last changed.
+     *
+     * @param start    The position to start from
+     * @param joinable The paths that can be joined, keyed by the packed positions they pass through. May be null.
+     * @return The path, with step zero as the centre. Empty if the centre can't be reached from the position.
+     */
+    PackedPath getPath(BaseVector3i start, TIntObjectMap<PackedPath> joinable);
+
+    /**
+     * Obtain a best effort path from a position to the centre, without waiting for the build to finish.
+     *
+     * @param start The position to start from
+     * @return The path, with step zero as the centre. Empty if no path can be given yet.
+     */
+    PackedPath getProvisionalPath(BaseVector3i start);
+}
@@ -0,0 +1,679 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.terasology.gooeyDefence.DefenceField;
+import org.terasology.math.geom.BaseVector3i;
+import org.terasology.math.geom.Vector3i;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The cost and direction to the centre of the field from every cell in the field.
+ * <p>
+ * The field is found with a single reverse search outwards from {@link DefenceField#fieldCentre()}, using the same
+ * movement rules as {@link EnemyWalkingPlugin}. Once it has been calculated, the path from any cell to the centre is
+ * found by following the direction stored in each cell, so no search is needed per enemy or per entrance.
+ * <p>
+ * When a block changes, only the cells whose route to the centre passed next to that block are thrown away. They
+ * are then filled back in from the surrounding cells that are still valid, so the cost of a repair depends on how
+ * much of the field the change affects rather than on the size of the field.
+ * <p>
+ * Cells on flat ground are expanded against a 2D grid of open columns, falling back to the full 3D movement rules
+ * wherever there is real vertical structure nearby.
+ * <p>
+ * A calculation only runs until every target cell, such as the entrances, has been settled. The rest of the search is
+ * kept and only resumed when a path is needed from a cell that hasn't been reached yet, or before a repair.
+ * <p>
+ * A calculation can also be spread over several updates, by resuming it with a time budget each time. Whilst it is
+ * still running, a provisional path can be read from each target, which finds its way towards the closest cell the
+ * search has reached so far and then follows the field from there.
+ * <p>
+ * Paths produced use step zero as the end, the same as all other paths.
+ *
+ * @see EnemyWalkingPlugin
+ */
+public class FlowField implements FieldPathfinder {
+    /**
+     * The cost stored for cells that cannot reach the centre.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    /**
+     * The cost of moving to a cardinal or vertical neighbour.
+     */
+    static final int STRAIGHT_COST = 10;
+    /**
+     * The cost of moving to a diagonal neighbour. Roughly the straight cost multiplied by the square root of two.
+     */
+    static final int DIAGONAL_COST = 14;
+    /**
+     * How many cells are settled between each check for cancellation.
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+    /**
+     * How many cells are settled between each check of the time budget.
+     */
+    private static final int TIME_CHECK_INTERVAL = 64;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    /**
+     * How many cells a provisional path may search through to reach the settled part of the field.
+     */
+    private static final int BRIDGE_SEARCH_LIMIT = 4096;
+    /**
+     * The offsets to every neighbour an enemy could move to, as x, y and z triples.
+     */
+    static final int[][] NEIGHBOURS = {
+            {1, 0, 0}, {-1, 0, 0}, {0, 0, 1}, {0, 0, -1},
+            {1, 0, 1}, {1, 0, -1}, {-1, 0, 1}, {-1, 0, -1},
+            {0, 1, 0}, {0, -1, 0}};
+
+    private EnemyWalkingPlugin plugin;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int[] costs;
+    /**
+     * The index of the cell to move to next from each cell, or -1 if there is none.
+     */
+    private final int[] next;
+    /**
+     * The cells whose cost is final.
+     */
+    private final BitSet settled;
+    /**
+     * The cells the search should reach before it stops early.
+     */
+    private final int[] targets;
+    private int unsettledTargets;
+    /**
+     * The settled cell closest to each target that hasn't been reached yet, or -1 if there is none.
+     */
+    private final int[] closestCells;
+    /**
+     * The squared distance from each target to its closest settled cell.
+     */
+    private final int[] closestDistances;
+    private final CellQueue queue = new CellQueue();
+    private final TIntArrayList invalidated = new TIntArrayList();
+    private final TIntArrayList stack = new TIntArrayList();
+    private final TIntArrayList pathSteps = new TIntArrayList();
+    private final CellQueue bridgeQueue = new CellQueue();
+    private final TIntIntMap bridgeParents = new TIntIntHashMap(
+            Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1, -1);
+
+    /**
+     * Create a new flow field covering the defence field.
+     * The field is empty until it is first calculated.
+     *
+     * @param plugin  The movement rules to follow
+     * @param radius  The horizontal distance from the centre to the edge of the field
+     * @param minY    The lowest layer enemies could travel through
+     * @param height  The number of layers enemies could travel through
+     * @param targets The positions the search must reach before it can stop early. Those outside the field are ignored
+     */
+    public FlowField(EnemyWalkingPlugin plugin, int radius, int minY, int height, BaseVector3i... targets) {
+        this.plugin = plugin;
+        Vector3i centre = DefenceField.fieldCentre();
+        minX = centre.x - radius;
+        minZ = centre.z - radius;
+        this.minY = minY;
+        sizeX = 2 * radius + 1;
+        sizeZ = 2 * radius + 1;
+        sizeY = height;
+        costs = new int[sizeX * sizeY * sizeZ];
+        next = new int[costs.length];
+        settled = new BitSet(costs.length);
+        Arrays.fill(costs, UNREACHABLE);
+        Arrays.fill(next, -1);
+        this.targets = Arrays.stream(targets)
+                .filter(target -> contains(target.x(), target.y(), target.z()))
+                .mapToInt(target -> index(target.x(), target.y(), target.z()))
+                .distinct()
+                .toArray();
+        closestCells = new int[this.targets.length];
+        closestDistances = new int[this.targets.length];
+        Arrays.fill(closestCells, -1);
+        Arrays.fill(closestDistances, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public EnemyWalkingPlugin getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Change the movement rules used by any later calculations or repairs.
+     *
+     * @param plugin The new movement rules to follow
+     */
+    @Override
+    public void setPlugin(EnemyWalkingPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Calculate the field from scratch, until every target has been reached.
+     * <p>
+     * May be run away from the main thread, as long as the movement rules it uses aren't changed whilst it runs.
+     * The calculation stops early if the thread running it is interrupted.
+     *
+     * @return True if the calculation finished, false if it was interrupted
+     */
+    @Override
+    public boolean calculate() {
+        reset();
+        return propagate(-1, true, NO_DEADLINE);
+    }
+
+    /**
+     * Clear the field and start a new calculation from the centre.
+     * Nothing is settled until the calculation is resumed.
+     *
+     * @see #resume(long)
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(costs, UNREACHABLE);
+        Arrays.fill(next, -1);
+        settled.clear();
+        queue.clear();
+        unsettledTargets = targets.length;
+        Arrays.fill(closestCells, -1);
+        Arrays.fill(closestDistances, Integer.MAX_VALUE);
+
+        int goal = goalIndex();
+        costs[goal] = 0;
+        queue.add(goal, 0);
+    }
+
+    /**
+     * Continue the calculation for at most the given amount of time, stopping once every target has been reached.
+     *
+     * @param budgetNanos How long the calculation may run for, in nanoseconds
+     * @return True if the calculation has finished
+     */
+    @Override
+    public boolean resume(long budgetNanos) {
+        propagate(-1, true, System.nanoTime() + budgetNanos);
+        return isCalculated();
+    }
+
+    /**
+     * Continue the search past the targets, until every reachable cell has been settled.
+     *
+     * @param budgetNanos How long the search may run for, in nanoseconds, or a negative value for no limit
+     * @return True if every reachable cell has been settled
+     */
+    @Override
+    public boolean complete(long budgetNanos) {
+        return propagate(-1, false, budgetNanos < 0 ? NO_DEADLINE : System.nanoTime() + budgetNanos);
+    }
+
+    /**
+     * @return True if every target has been reached, or the search has run out of cells to reach
+     */
+    @Override
+    public boolean isCalculated() {
+        return unsettledTargets <= 0 || queue.isEmpty();
+    }
+
+    /**
+     * Repair the field after some blocks have changed.
+     * <p>
+     * Every cell whose movement rules could depend on one of the blocks is invalidated, along with every cell that
+     * routes through one of those. The invalidated cells are then re-seeded from their valid neighbours and the search
+     * is resumed from there. Any shorter routes opened up by the changes spread outwards as part of the same search.
+     * All the blocks are repaired together, so cells affected by several of them are only searched once.
+     *
+     * @param changedBlocks The positions of the blocks that changed
+     */
+    @Override
+    public void update(Iterable<? extends BaseVector3i> changedBlocks) {
+        /* Repairs rely on every reachable cell being settled, so finish any search that wasn't completed */
+        propagate(-1, false, NO_DEADLINE);
+        invalidated.resetQuick();
+
+        for (BaseVector3i changed : changedBlocks) {
+            /* Moves are affected if they pass next to the block, or if the block is the ground beneath either end */
+            for (int x = changed.x() - 1; x <= changed.x() + 1; x++) {
+                for (int y = changed.y() - 1; y <= changed.y() + 2; y++) {
+                    for (int z = changed.z() - 1; z <= changed.z() + 1; z++) {
+                        if (contains(x, y, z)) {
+                            invalidate(index(x, y, z));
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < invalidated.size(); i++) {
+            seedFromNeighbours(invalidated.getQuick(i));
+        }
+        int goal = goalIndex();
+        if (costs[goal] != 0) {
+            costs[goal] = 0;
+            next[goal] = -1;
+            settled.clear(goal);
+            queue.add(goal, 0);
+        }
+        propagate(-1, false, NO_DEADLINE);
+    }
+
+    /**
+     * Obtain the path from a position to the centre of the field.
+     *
+     * @param start The position to start from
+     * @return The path, with step zero as the centre. Empty if the centre can't be reached from the position.
+     */
+    @Override
+    public PackedPath getPath(BaseVector3i start) {
+        return getPath(start, null);
+    }
+
+    /**
+     * Obtain the path from a position to the centre of the field, sharing the end of an existing path if possible.
+     * <p>
+     * Once the path reaches a position on one of the given paths, it would follow the rest of that path to the centre.
+     * That section is shared with the existing path rather than copied. The given paths must have been read from
+     * this field since it last changed.
+     *
+     * @param start    The position to start from
+     * @param joinable The paths that can be joined, keyed by the packed positions they pass through. May be null.
+     * @return The path, with step zero as the centre. Empty if the centre can't be reached from the position.
+     */
+    @Override
+    public PackedPath getPath(BaseVector3i start, TIntObjectMap<PackedPath> joinable) {
+        if (!contains(start.x(), start.y(), start.z())) {
+            return PackedPath.EMPTY;
+        }
+        int cell = index(start.x(), start.y(), start.z());
+        ensureSettled(cell);
+        return readPath(cell, joinable);
+    }
+
+    /**
+     * Obtain a best effort path from a target to the centre of the field, without resuming the calculation.
+     * <p>
+     * If the target has been reached, this is the same as its full path. Otherwise a short search heads from the
+     * target towards the closest cell that has been reached, using only moves the enemies can make, and the path
+     * follows the field from the first reached cell it finds.
+     *
+     * @param start The target to start from
+     * @return The path, with step zero as the centre. Empty if no reached cell could be found near enough, or if the
+     * position is not a target.
+     */
+    @Override
+    public PackedPath getProvisionalPath(BaseVector3i start) {
+        if (!contains(start.x(), start.y(), start.z())) {
+            return PackedPath.EMPTY;
+        }
+        int cell = index(start.x(), start.y(), start.z());
+        if (settled.get(cell)) {
+            return readPath(cell, null);
+        }
+        int target = targetIndex(cell);
+        if (target == -1 || closestCells[target] == -1) {
+            return PackedPath.EMPTY;
+        }
+        int closest = closestCells[target];
+
+        /* Search out from the start, heading for the closest cell, until any cell that has been reached is found */
+        bridgeQueue.clear();
+        bridgeParents.clear();
+        bridgeParents.put(cell, -1);
+        bridgeQueue.add(cell, 0);
+        int joined = -1;
+        while (!bridgeQueue.isEmpty() && bridgeParents.size() <= BRIDGE_SEARCH_LIMIT) {
+            int current = bridgeQueue.poll();
+            if (settled.get(current)) {
+                joined = current;
+                break;
+            }
+            int x = cellX(current);
+            int y = cellY(current);
+            int z = cellZ(current);
+            for (int[] offset : NEIGHBOURS) {
+                int neighbourX = x + offset[0];
+                int neighbourY = y + offset[1];
+                int neighbourZ = z + offset[2];
+                if (!contains(neighbourX, neighbourY, neighbourZ)) {
+                    continue;
+                }
+                int neighbour = index(neighbourX, neighbourY, neighbourZ);
+                if (!bridgeParents.containsKey(neighbour)
+                        && plugin.isReachable(neighbourX, neighbourY, neighbourZ, x, y, z)) {
+                    bridgeParents.put(neighbour, current);
+                    bridgeQueue.add(neighbour, estimateCost(
+                            cellX(closest) - neighbourX,
+                            cellY(closest) - neighbourY,
+                            cellZ(closest) - neighbourZ));
+                }
+            }
+        }
+        if (joined == -1) {
+            return PackedPath.EMPTY;
+        }
+        PackedPath tail = readPath(joined, null);
+
+        /* Walking back from the joined cell gives the steps in order, ending at the start */
+        pathSteps.resetQuick();
+        for (int step = bridgeParents.get(joined); step != -1; step = bridgeParents.get(step)) {
+            pathSteps.add(PackedPath.pack(cellX(step), cellY(step), cellZ(step)));
+        }
+        return new PackedPath(pathSteps.toArray(), tail, tail.size());
+    }
+
+    /**
+     * Follow the field from a cell to the centre, without resuming the calculation.
+     *
+     * @param cell     The cell to start from
+     * @param joinable The paths that can be joined, keyed by the packed positions they pass through. May be null.
+     * @return The path, with step zero as the centre. Empty if the cell hasn't been reached.
+     */
+    private PackedPath readPath(int cell, TIntObjectMap<PackedPath> joinable) {
+        if (costs[cell] == UNREACHABLE) {
+            return PackedPath.EMPTY;
+        }
+        pathSteps.resetQuick();
+        PackedPath tail = null;
+        int tailSize = 0;
+        while (cell != -1) {
+            int packed = PackedPath.pack(cellX(cell), cellY(cell), cellZ(cell));
+            PackedPath join = joinable != null ? joinable.get(packed) : null;
+            if (join != null) {
+                tail = join;
+                tailSize = join.indexOf(packed) + 1;
+                break;
+            }
+            pathSteps.add(packed);
+            cell = next[cell];
+        }
+        /* The steps were found from the start, so flip them to make zero the end */
+        int[] steps = new int[pathSteps.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = pathSteps.getQuick(steps.length - 1 - i);
+        }
+        return new PackedPath(steps, tail, tailSize);
+    }
+
+    /**
+     * @param position The position to check
+     * @return The cost of moving from the position to the centre, or {@link #UNREACHABLE}
+     */
+    public int getCost(BaseVector3i position) {
+        if (!contains(position.x(), position.y(), position.z())) {
+            return UNREACHABLE;
+        }
+        int cell = index(position.x(), position.y(), position.z());
+        ensureSettled(cell);
+        return costs[cell];
+    }
+
+    /**
+     * Estimate the cost of moving between two positions, assuming nothing is in the way.
+     * This never overestimates the cost of a real path between them.
+     *
+     * @param dx The distance along the x axis
+     * @param dy The distance along the y axis
+     * @param dz The distance along the z axis
+     * @return The octile distance between the positions
+     */
+    public static int estimateCost(int dx, int dy, int dz) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        dz = Math.abs(dz);
+        return STRAIGHT_COST * (Math.max(dx, dz) + dy) + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(dx, dz);
+    }
+
+    /**
+     * @param x The x position to check
+     * @param y The y position to check
+     * @param z The z position to check
+     * @return True if the position lies inside the volume covered by the field
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x < minX + sizeX
+                && y >= minY && y < minY + sizeY
+                && z >= minZ && z < minZ + sizeZ;
+    }
+
+    /**
+     * Resume the search until the given cell has been settled.
+     * Does nothing if it already has been, or if the search has finished.
+     *
+     * @param cell The cell that needs a final cost
+     */
+    private void ensureSettled(int cell) {
+        if (!settled.get(cell) && !queue.isEmpty()) {
+            propagate(cell, false, NO_DEADLINE);
+        }
+    }
+
+    /**
+     * Settle cells from the queue in order of cost until it is empty, or until a stopping point is reached.
+     * Any cells left in the queue are kept, so the search can be resumed later.
+     *
+     * @param stopCell      A cell to stop at once it has been settled, or -1 to not stop at a cell
+     * @param stopAtTargets True to stop once every target has been settled
+     * @param deadline      The {@link System#nanoTime()} to stop at, or {@link #NO_DEADLINE}
+     * @return True if the search finished or stopped, false if the thread was interrupted or the deadline passed
+     */
+    private boolean propagate(int stopCell, boolean stopAtTargets, long deadline) {
+        if (stopAtTargets && unsettledTargets <= 0) {
+            return true;
+        }
+        int count = 0;
+        while (!queue.isEmpty()) {
+            count++;
+            if (count % CANCEL_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                queue.clear();
+                return false;
+            }
+            if (deadline != NO_DEADLINE && count % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            int cost = queue.peekCost();
+            int cell = queue.poll();
+            if (cost > costs[cell] || settled.get(cell)) {
+                /* Stale entry, the cell has already been settled */
+                continue;
+            }
+            settled.set(cell);
+            expand(cell);
+            if (cell == stopCell) {
+                return true;
+            }
+            if (unsettledTargets > 0 && updateTargets(cell) && stopAtTargets) {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param cell The cell to look for
+     * @return The index of the target at the cell, or -1 if it isn't a target
+     */
+    private int targetIndex(int cell) {
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Record a newly settled cell against every target that hasn't been reached yet.
+     *
+     * @param cell The cell that has just been settled
+     * @return True if that was the last target to be reached
+     */
+    private boolean updateTargets(int cell) {
+        boolean lastTarget = false;
+        for (int i = 0; i < targets.length; i++) {
+            int target = targets[i];
+            if (target == cell) {
+                lastTarget = --unsettledTargets == 0;
+            } else if (!settled.get(target)) {
+                int dx = cellX(cell) - cellX(target);
+                int dy = cellY(cell) - cellY(target);
+                int dz = cellZ(cell) - cellZ(target);
+                int distance = dx * dx + dy * dy + dz * dz;
+                if (distance < closestDistances[i]) {
+                    closestDistances[i] = distance;
+                    closestCells[i] = cell;
+                }
+            }
+        }
+        return lastTarget;
+    }
+
+    /**
+     * Clears the given cell, and every cell that routes through it, back to unreachable.
+     * The cleared cells are recorded so that they can be re-seeded.
+     *
+     * @param root The first cell to clear
+     */
+    private void invalidate(int root) {
+        invalidated.add(root);
+        if (costs[root] == UNREACHABLE) {
+            return;
+        }
+        stack.resetQuick();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            int cell = stack.removeAt(stack.size() - 1);
+            if (costs[cell] == UNREACHABLE) {
+                continue;
+            }
+            int x = cellX(cell);
+            int y = cellY(cell);
+            int z = cellZ(cell);
+            for (int[] offset : NEIGHBOURS) {
+                int neighbourX = x + offset[0];
+                int neighbourY = y + offset[1];
+                int neighbourZ = z + offset[2];
+                if (contains(neighbourX, neighbourY, neighbourZ)) {
+                    int neighbour = index(neighbourX, neighbourY, neighbourZ);
+                    if (next[neighbour] == cell) {
+                        stack.add(neighbour);
+                    }
+                }
+            }
+            costs[cell] = UNREACHABLE;
+            next[cell] = -1;
+            settled.clear(cell);
+            if (cell != root) {
+                invalidated.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Queues every valid neighbour of a cell, so that the search can resume from them into the cell.
+     *
+     * @param cell The invalidated cell
+     */
+    private void seedFromNeighbours(int cell) {
+        int x = cellX(cell);
+        int y = cellY(cell);
+        int z = cellZ(cell);
+        for (int[] offset : NEIGHBOURS) {
+            int neighbourX = x + offset[0];
+            int neighbourY = y + offset[1];
+            int neighbourZ = z + offset[2];
+            if (contains(neighbourX, neighbourY, neighbourZ)) {
+                int neighbour = index(neighbourX, neighbourY, neighbourZ);
+                if (costs[neighbour] != UNREACHABLE) {
+                    /* The neighbour needs expanding again, so that it can reach the cell */
+                    settled.clear(neighbour);
+                    queue.add(neighbour, costs[neighbour]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Relax every neighbour that can move into the given cell.
+     *
+     * @param cell The cell that has just been settled
+     */
+    private void expand(int cell) {
+        int x = cellX(cell);
+        int y = cellY(cell);
+        int z = cellZ(cell);
+        /* On flat ground, only the 2D grid needs checking */
+        boolean flat = plugin.isOnFlatGround(x, y, z);
+        for (int[] offset : NEIGHBOURS) {
+            int neighbourX = x + offset[0];
+            int neighbourY = y + offset[1];
+            int neighbourZ = z + offset[2];
+            if (!contains(neighbourX, neighbourY, neighbourZ)) {
+                continue;
+            }
+            int neighbour = index(neighbourX, neighbourY, neighbourZ);
+            int cost = costs[cell] + (offset[0] != 0 && offset[2] != 0 ? DIAGONAL_COST : STRAIGHT_COST);
+            if (cost >= costs[neighbour]) {
+                continue;
+            }
+            /* The search runs backwards, so check that the neighbour can move into this cell */
+            boolean reachable;
+            if (flat) {
+                reachable = offset[1] != 0 || plugin.isFlatReachable(x, z, neighbourX, neighbourZ);
+            } else {
+                reachable = plugin.isReachable(x, y, z, neighbourX, neighbourY, neighbourZ);
+            }
+            if (reachable) {
+                costs[neighbour] = cost;
+                next[neighbour] = cell;
+                /* A repair can find a cheaper route to a settled cell, which then needs expanding again */
+                settled.clear(neighbour);
+                queue.add(neighbour, cost);
+            }
+        }
+    }
+
+    private int goalIndex() {
+        Vector3i centre = DefenceField.fieldCentre();
+        return index(centre.x, centre.y, centre.z);
+    }
+
+    private int index(int x, int y, int z) {
+        return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+    }
+
+    private int cellX(int cell) {
+        return cell / (sizeY * sizeZ) + minX;
+    }
+
+    private int cellY(int cell) {
+        return (cell / sizeZ) % sizeY + minY;
+    }
+
+    private int cellZ(int cell) {
+        return cell % sizeZ + minZ;
+    }
+}
@@ -0,0 +1,679 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.terasology.gooeyDefence.DefenceField;
+import org.terasology.math.geom.BaseVector3i;
+import org.terasology.math.geom.Vector3i;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.terasology.gooeyDefence.pathfinding.FlowField.DIAGONAL_COST;
+import static org.terasology.gooeyDefence.pathfinding.FlowField.NEIGHBOURS;
+import static org.terasology.gooeyDefence.pathfinding.FlowField.STRAIGHT_COST;
+import static org.terasology.gooeyDefence.pathfinding.FlowField.UNREACHABLE;
+
+/**
+ * Hierarchical pathfinding over the defence field, for fields too large to hold a full flow field.
+ * <p>
+ * The field is split into square sectors, each covering every layer of the field. Wherever enemies can cross the
+ * border between two sectors, portals are spread along each run of crossable cells. The cost of moving between every
+ * pair of portals in a sector is found once, with a search that stays inside the sector. Together these make a small
+ * abstract graph over the whole field.
+ * <p>
+ * A path is found by searching the abstract graph, from the start to the portals of its sector and from the portals of
+ * the centre's sector to the centre. Each leg of the abstract path is then refined into cells with another search
+ * local to its sector. When a block changes, only the sectors around it are rebuilt.
+ * <p>
+ * Movement in the field is symmetric, so costs found in one direction hold in the other.
+ *
+ * @see FlowField
+ * @see EnemyWalkingPlugin
+ */
+public class HierarchicalPathfinder implements FieldPathfinder {
+    /**
+     * The width of each sector, in blocks.
+     */
+    private static final int SECTOR_SIZE = 16;
+    /**
+     * The most cells between neighbouring portals along a run of crossable cells.
+     * Closer portals give routes that stray less from the cheapest path, but make the abstract graph larger.
+     */
+    private static final int PORTAL_SPACING = 4;
+    /**
+     * The offsets to every horizontal neighbour, as x and z pairs.
+     */
+    private static final int[][] SECTOR_NEIGHBOURS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private EnemyWalkingPlugin plugin;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int sectorsX;
+    private final int sectorsZ;
+    private final Sector[] sectors;
+    /**
+     * How far through the build is. Each sector has its borders found, and then its portals connected.
+     */
+    private int buildStep;
+
+    /* Buffers for searches within a single sector */
+    private final int[] localCosts;
+    private final int[] localNext;
+    private final CellQueue queue = new CellQueue();
+
+    /**
+     * Create a new pathfinder covering the defence field.
+     * Nothing is built until it is first calculated.
+     *
+     * @param plugin The movement rules to follow
+     * @param radius The horizontal distance from the centre to the edge of the field
+     * @param minY   The lowest layer enemies could travel through
+     * @param height The number of layers enemies could travel through
+     */
+    public HierarchicalPathfinder(EnemyWalkingPlugin plugin, int radius, int minY, int height) {
+        this.plugin = plugin;
+        Vector3i centre = DefenceField.fieldCentre();
+        minX = centre.x - radius;
+        minZ = centre.z - radius;
+        this.minY = minY;
+        sizeX = 2 * radius + 1;
+        sizeZ = 2 * radius + 1;
+        sizeY = height;
+        sectorsX = (sizeX + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        sectorsZ = (sizeZ + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        sectors = new Sector[sectorsX * sectorsZ];
+        for (int i = 0; i < sectors.length; i++) {
+            sectors[i] = new Sector();
+        }
+        localCosts = new int[SECTOR_SIZE * sizeY * SECTOR_SIZE];
+        localNext = new int[localCosts.length];
+    }
+
+    @Override
+    public EnemyWalkingPlugin getPlugin() {
+        return plugin;
+    }
+
+    @Override
+    public void setPlugin(EnemyWalkingPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean calculate() {
+        reset();
+        return complete(-1);
+    }
+
+    @Override
+    public void reset() {
+        buildStep = 0;
+        for (Sector sector : sectors) {
+            sector.clear();
+        }
+    }
+
+    @Override
+    public boolean resume(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        while (!isCalculated() && System.nanoTime() - deadline < 0) {
+            buildNext();
+        }
+        return isCalculated();
+    }
+
+    /**
+     * Every sector is searched as part of the build, so there is nothing more to find once it has finished.
+     */
+    @Override
+    public boolean complete(long budgetNanos) {
+        if (budgetNanos >= 0) {
+            return resume(budgetNanos);
+        }
+        while (!isCalculated()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            buildNext();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isCalculated() {
+        return buildStep == 2 * sectors.length;
+    }
+
+    /**
+     * Rebuild every sector that could be affected by the changed blocks.
+     * <p>
+     * The borders of each sector touching a changed block are found again, and then the portals of those sectors and
+     * their neighbours are reconnected, as their borders may have gained or lost portals.
+     *
+     * @param changedBlocks The positions of the blocks that changed
+     */
+    @Override
+    public void update(Iterable<? extends BaseVector3i> changedBlocks) {
+        while (!isCalculated()) {
+            buildNext();
+        }
+        BitSet dirty = new BitSet(sectors.length);
+        for (BaseVector3i block : changedBlocks) {
+            /* Moves next to a block depend on it, so it can affect the sectors either side of a border */
+            for (int x = block.x() - 1; x <= block.x() + 1; x++) {
+                for (int z = block.z() - 1; z <= block.z() + 1; z++) {
+                    if (containsColumn(x, z)) {
+                        dirty.set(sectorAt(x, z));
+                    }
+                }
+            }
+        }
+        BitSet affected = new BitSet(sectors.length);
+        for (int sector = dirty.nextSetBit(0); sector >= 0; sector = dirty.nextSetBit(sector + 1)) {
+            findBorders(sector);
+            affected.set(sector);
+            int sectorX = sector / sectorsZ;
+            int sectorZ = sector % sectorsZ;
+            if (sectorX > 0) {
+                findBorders(sector - sectorsZ);
+            }
+            if (sectorZ > 0) {
+                findBorders(sector - 1);
+            }
+            for (int[] offset : SECTOR_NEIGHBOURS) {
+                int neighbourX = sectorX + offset[0];
+                int neighbourZ = sectorZ + offset[1];
+                if (neighbourX >= 0 && neighbourX < sectorsX && neighbourZ >= 0 && neighbourZ < sectorsZ) {
+                    affected.set(neighbourX * sectorsZ + neighbourZ);
+                }
+            }
+        }
+        for (int sector = affected.nextSetBit(0); sector >= 0; sector = affected.nextSetBit(sector + 1)) {
+            connectPortals(sector);
+        }
+    }
+
+    @Override
+    public PackedPath getPath(BaseVector3i start) {
+        return getPath(start, null);
+    }
+
+    @Override
+    public PackedPath getPath(BaseVector3i start, TIntObjectMap<PackedPath> joinable) {
+        Vector3i centre = DefenceField.fieldCentre();
+        if (!contains(start.x(), start.y(), start.z()) || !contains(centre.x, centre.y, centre.z)) {
+            return PackedPath.EMPTY;
+        }
+        while (!isCalculated()) {
+            buildNext();
+        }
+        TIntArrayList route = findRoute(index(start.x(), start.y(), start.z()), index(centre.x, centre.y, centre.z));
+        if (route == null) {
+            return PackedPath.EMPTY;
+        }
+
+        PackedPath tail = null;
+        int tailSize = 0;
+        int length = route.size();
+        for (int i = 0; i < route.size(); i++) {
+            int cell = route.getQuick(i);
+            int packed = PackedPath.pack(cellX(cell), cellY(cell), cellZ(cell));
+            PackedPath join = joinable != null ? joinable.get(packed) : null;
+            if (join != null) {
+                tail = join;
+                tailSize = join.indexOf(packed) + 1;
+                length = i;
+                break;
+            }
+        }
+        /* The route runs from the start, so flip it to make zero the end */
+        int[] steps = new int[length];
+        for (int i = 0; i < length; i++) {
+            int cell = route.getQuick(length - 1 - i);
+            steps[i] = PackedPath.pack(cellX(cell), cellY(cell), cellZ(cell));
+        }
+        return new PackedPath(steps, tail, tailSize);
+    }
+
+    /**
+     * There is nothing to read paths from until the build has finished, so no path is given until then.
+     */
+    @Override
+    public PackedPath getProvisionalPath(BaseVector3i start) {
+        return isCalculated() ? getPath(start) : PackedPath.EMPTY;
+    }
+
+    /**
+     * Run the next step of the build.
+     * The borders of every sector are found first, as connecting the portals of a sector needs all four of its borders.
+     */
+    private void buildNext() {
+        if (buildStep < sectors.length) {
+            findBorders(buildStep);
+        } else {
+            connectPortals(buildStep - sectors.length);
+        }
+        buildStep++;
+    }
+
+    /**
+     * Find the portals across the east and south borders of a sector.
+     * Portals are placed along every run of cells, on each layer, that can be crossed straight over.
+     *
+     * @param sector The sector to find the borders of
+     */
+    private void findBorders(int sector) {
+        Sector data = sectors[sector];
+        data.eastCrossings.resetQuick();
+        data.southCrossings.resetQuick();
+        int startX = sectorMinX(sector);
+        int startZ = sectorMinZ(sector);
+        int endX = Math.min(startX + SECTOR_SIZE, minX + sizeX) - 1;
+        int endZ = Math.min(startZ + SECTOR_SIZE, minZ + sizeZ) - 1;
+        for (int y = minY; y < minY + sizeY; y++) {
+            if (endX + 1 < minX + sizeX) {
+                int runStart = -1;
+                for (int z = startZ; z <= endZ + 1; z++) {
+                    boolean crossable = z <= endZ && plugin.isReachable(endX + 1, y, z, endX, y, z);
+                    if (crossable && runStart == -1) {
+                        runStart = z;
+                    } else if (!crossable && runStart != -1) {
+                        for (int crossing : runCrossings(runStart, z - 1)) {
+                            data.eastCrossings.add(index(endX, y, crossing));
+                            data.eastCrossings.add(index(endX + 1, y, crossing));
+                        }
+                        runStart = -1;
+                    }
+                }
+            }
+            if (endZ + 1 < minZ + sizeZ) {
+                int runStart = -1;
+                for (int x = startX; x <= endX + 1; x++) {
+                    boolean crossable = x <= endX && plugin.isReachable(x, y, endZ + 1, x, y, endZ);
+                    if (crossable && runStart == -1) {
+                        runStart = x;
+                    } else if (!crossable && runStart != -1) {
+                        for (int crossing : runCrossings(runStart, x - 1)) {
+                            data.southCrossings.add(index(crossing, y, endZ));
+                            data.southCrossings.add(index(crossing, y, endZ + 1));
+                        }
+                        runStart = -1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Spread crossings along a run of crossable cells, at both ends and evenly in between.
+     * Short runs only get a single crossing in the middle.
+     *
+     * @param runStart The first cell of a run of crossable cells along a border
+     * @param runEnd   The last cell of the run
+     * @return Where along the run to place crossings
+     */
+    private static int[] runCrossings(int runStart, int runEnd) {
+        int length = runEnd - runStart;
+        if (length < PORTAL_SPACING) {
+            return new int[]{(runStart + runEnd) / 2};
+        }
+        int gaps = (length + PORTAL_SPACING - 1) / PORTAL_SPACING;
+        int[] crossings = new int[gaps + 1];
+        for (int i = 0; i <= gaps; i++) {
+            crossings[i] = runStart + length * i / gaps;
+        }
+        return crossings;
+    }
+
+    /**
+     * Collect the portals on all four borders of a sector, and find the cost between every pair of them.
+     *
+     * @param sector The sector to connect
+     */
+    private void connectPortals(int sector) {
+        Sector data = sectors[sector];
+        data.portals.resetQuick();
+        for (int i = 0; i < data.eastCrossings.size(); i += 2) {
+            addPortal(data, data.eastCrossings.getQuick(i));
+        }
+        for (int i = 0; i < data.southCrossings.size(); i += 2) {
+            addPortal(data, data.southCrossings.getQuick(i));
+        }
+        if (sector / sectorsZ > 0) {
+            TIntArrayList westCrossings = sectors[sector - sectorsZ].eastCrossings;
+            for (int i = 1; i < westCrossings.size(); i += 2) {
+                addPortal(data, westCrossings.getQuick(i));
+            }
+        }
+        if (sector % sectorsZ > 0) {
+            TIntArrayList northCrossings = sectors[sector - 1].southCrossings;
+            for (int i = 1; i < northCrossings.size(); i += 2) {
+                addPortal(data, northCrossings.getQuick(i));
+            }
+        }
+
+        int count = data.portals.size();
+        data.costs = new int[count * count];
+        for (int from = 0; from < count; from++) {
+            searchSector(sector, data.portals.getQuick(from));
+            for (int to = 0; to < count; to++) {
+                data.costs[from * count + to] = localCosts[localIndex(sector, data.portals.getQuick(to))];
+            }
+        }
+    }
+
+    private void addPortal(Sector data, int cell) {
+        if (!data.portals.contains(cell)) {
+            data.portals.add(cell);
+        }
+    }
+
+    /**
+     * Search the abstract graph for the cheapest route between two cells, and refine it into every cell along the way.
+     *
+     * @param start The cell to start from
+     * @param goal  The cell to finish at
+     * @return Every cell on the route, starting with the start. Null if there is no route.
+     */
+    private TIntArrayList findRoute(int start, int goal) {
+        int startSector = sectorOf(start);
+        int goalSector = sectorOf(goal);
+
+        /* Costs from the portals of the goal's sector, and the start if it shares it, to the goal */
+        TIntIntMap goalCosts = new TIntIntHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1, -1);
+        searchSector(goalSector, goal);
+        Sector goalData = sectors[goalSector];
+        for (int i = 0; i < goalData.portals.size(); i++) {
+            int portal = goalData.portals.getQuick(i);
+            int cost = localCosts[localIndex(goalSector, portal)];
+            if (cost != UNREACHABLE) {
+                goalCosts.put(portal, cost);
+            }
+        }
+        if (startSector == goalSector && localCosts[localIndex(goalSector, start)] != UNREACHABLE) {
+            goalCosts.put(start, localCosts[localIndex(goalSector, start)]);
+        }
+
+        /* Costs from the start to the portals of its own sector */
+        TIntIntMap startCosts = new TIntIntHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1, -1);
+        searchSector(startSector, start);
+        Sector startData = sectors[startSector];
+        for (int i = 0; i < startData.portals.size(); i++) {
+            int portal = startData.portals.getQuick(i);
+            int cost = localCosts[localIndex(startSector, portal)];
+            if (cost != UNREACHABLE) {
+                startCosts.put(portal, cost);
+            }
+        }
+
+        TIntIntMap parents = searchAbstract(start, goal, startCosts, goalCosts);
+        if (parents == null) {
+            return null;
+        }
+        TIntArrayList nodes = new TIntArrayList();
+        for (int node = goal; node != start; node = parents.get(node)) {
+            nodes.add(node);
+        }
+        nodes.add(start);
+        nodes.reverse();
+
+        TIntArrayList route = new TIntArrayList();
+        route.add(start);
+        for (int i = 1; i < nodes.size(); i++) {
+            int from = nodes.getQuick(i - 1);
+            int to = nodes.getQuick(i);
+            int sector = sectorOf(from);
+            if (sector != sectorOf(to)) {
+                /* A crossing between two portals is a single step */
+                route.add(to);
+                continue;
+            }
+            searchSector(sector, to);
+            int cell = localNext[localIndex(sector, from)];
+            while (cell != -1) {
+                route.add(cell);
+                cell = localNext[localIndex(sector, cell)];
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Search the abstract graph with A*, using the octile distance as the heuristic.
+     *
+     * @param start      The cell to start from
+     * @param goal       The cell to finish at
+     * @param startCosts The costs from the start to each portal of its sector
+     * @param goalCosts  The costs to the goal from each portal of its sector, and from the start if it shares it
+     * @return The node visited before each node on the cheapest route, or null if the goal can't be reached
+     */
+    private TIntIntMap searchAbstract(int start, int goal, TIntIntMap startCosts, TIntIntMap goalCosts) {
+        TIntIntMap costs = new TIntIntHashMap(
+                Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1, UNREACHABLE);
+        TIntIntMap parents = new TIntIntHashMap();
+        queue.clear();
+        costs.put(start, 0);
+        queue.add(start, heuristic(start, goal));
+        while (!queue.isEmpty()) {
+            int estimate = queue.peekCost();
+            int node = queue.poll();
+            int cost = costs.get(node);
+            if (estimate > cost + heuristic(node, goal)) {
+                /* Stale entry, the node has since been reached more cheaply */
+                continue;
+            }
+            if (node == goal) {
+                return parents;
+            }
+            if (goalCosts.containsKey(node)) {
+                relax(node, goal, cost + goalCosts.get(node), goal, costs, parents);
+            }
+            if (node == start) {
+                for (int portal : startCosts.keys()) {
+                    relax(node, portal, cost + startCosts.get(portal), goal, costs, parents);
+                }
+            } else {
+                Sector data = sectors[sectorOf(node)];
+                int from = data.portals.indexOf(node);
+                int count = data.portals.size();
+                for (int to = 0; to < count; to++) {
+                    int edge = data.costs[from * count + to];
+                    if (edge != UNREACHABLE && to != from) {
+                        relax(node, data.portals.getQuick(to), cost + edge, goal, costs, parents);
+                    }
+                }
+            }
+            relaxCrossings(node, cost, goal, costs, parents);
+        }
+        return null;
+    }
+
+    /**
+     * Relax every crossing from a portal into the neighbouring sectors.
+     */
+    private void relaxCrossings(int node, int cost, int goal, TIntIntMap costs, TIntIntMap parents) {
+        int sector = sectorOf(node);
+        relaxCrossings(node, sectors[sector].eastCrossings, 0, cost, goal, costs, parents);
+        relaxCrossings(node, sectors[sector].southCrossings, 0, cost, goal, costs, parents);
+        if (sector / sectorsZ > 0) {
+            relaxCrossings(node, sectors[sector - sectorsZ].eastCrossings, 1, cost, goal, costs, parents);
+        }
+        if (sector % sectorsZ > 0) {
+            relaxCrossings(node, sectors[sector - 1].southCrossings, 1, cost, goal, costs, parents);
+        }
+    }
+
+    /**
+     * @param crossings The pairs of cells either side of a border
+     * @param side      Which cell of each pair is on the same side as the node
+     */
+    private void relaxCrossings(int node, TIntArrayList crossings, int side, int cost, int goal,
+                                TIntIntMap costs, TIntIntMap parents) {
+        for (int i = 0; i < crossings.size(); i += 2) {
+            if (crossings.getQuick(i + side) == node) {
+                relax(node, crossings.getQuick(i + 1 - side), cost + STRAIGHT_COST, goal, costs, parents);
+            }
+        }
+    }
+
+    private void relax(int from, int to, int cost, int goal, TIntIntMap costs, TIntIntMap parents) {
+        if (cost < costs.get(to)) {
+            costs.put(to, cost);
+            parents.put(to, from);
+            queue.add(to, cost + heuristic(to, goal));
+        }
+    }
+
+    /**
+     * @return The octile distance between two cells, which never overestimates the cost of moving between them
+     */
+    private int heuristic(int from, int to) {
+        return FlowField.estimateCost(cellX(from) - cellX(to), cellY(from) - cellY(to), cellZ(from) - cellZ(to));
+    }
+
+    /**
+     * Search outwards from a cell, staying inside its sector.
+     * Afterwards the local buffers hold the cost from every cell in the sector to the source, and the next cell to
+     * move to on the way there.
+     *
+     * @param sector The sector to search
+     * @param source The cell to search from
+     */
+    private void searchSector(int sector, int source) {
+        Arrays.fill(localCosts, UNREACHABLE);
+        Arrays.fill(localNext, -1);
+        queue.clear();
+        localCosts[localIndex(sector, source)] = 0;
+        queue.add(source, 0);
+        int startX = sectorMinX(sector);
+        int startZ = sectorMinZ(sector);
+        while (!queue.isEmpty()) {
+            int cost = queue.peekCost();
+            int cell = queue.poll();
+            if (cost > localCosts[localIndex(sector, cell)]) {
+                continue;
+            }
+            int x = cellX(cell);
+            int y = cellY(cell);
+            int z = cellZ(cell);
+            for (int[] offset : NEIGHBOURS) {
+                int neighbourX = x + offset[0];
+                int neighbourY = y + offset[1];
+                int neighbourZ = z + offset[2];
+                if (neighbourX < startX || neighbourX >= startX + SECTOR_SIZE
+                        || neighbourZ < startZ || neighbourZ >= startZ + SECTOR_SIZE
+                        || !contains(neighbourX, neighbourY, neighbourZ)) {
+                    continue;
+                }
+                int neighbour = index(neighbourX, neighbourY, neighbourZ);
+                int local = localIndex(sector, neighbour);
+                int neighbourCost = cost + (offset[0] != 0 && offset[2] != 0 ? DIAGONAL_COST : STRAIGHT_COST);
+                if (neighbourCost >= localCosts[local]) {
+                    continue;
+                }
+                if (plugin.isReachable(x, y, z, neighbourX, neighbourY, neighbourZ)) {
+                    localCosts[local] = neighbourCost;
+                    localNext[local] = cell;
+                    queue.add(neighbour, neighbourCost);
+                }
+            }
+        }
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return containsColumn(x, z) && y >= minY && y < minY + sizeY;
+    }
+
+    private boolean containsColumn(int x, int z) {
+        return x >= minX && x < minX + sizeX && z >= minZ && z < minZ + sizeZ;
+    }
+
+    private int sectorAt(int x, int z) {
+        return ((x - minX) / SECTOR_SIZE) * sectorsZ + (z - minZ) / SECTOR_SIZE;
+    }
+
+    private int sectorOf(int cell) {
+        return sectorAt(cellX(cell), cellZ(cell));
+    }
+
+    private int sectorMinX(int sector) {
+        return minX + (sector / sectorsZ) * SECTOR_SIZE;
+    }
+
+    private int sectorMinZ(int sector) {
+        return minZ + (sector % sectorsZ) * SECTOR_SIZE;
+    }
+
+    private int localIndex(int sector, int cell) {
+        return ((cellX(cell) - sectorMinX(sector)) * sizeY + (cellY(cell) - minY)) * SECTOR_SIZE
+                + (cellZ(cell) - sectorMinZ(sector));
+    }
+
+    private int index(int x, int y, int z) {
+        return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+    }
+
+    private int cellX(int cell) {
+        return cell / (sizeY * sizeZ) + minX;
+    }
+
+    private int cellY(int cell) {
+        return (cell / sizeZ) % sizeY + minY;
+    }
+
+    private int cellZ(int cell) {
+        return cell % sizeZ + minZ;
+    }
+
+    /**
+     * The portals of a single sector, and the crossings over its east and south borders.
+     */
+    private static class Sector {
+        /**
+         * The cells in this sector that lie on a crossing, on any of its borders.
+         */
+        private final TIntArrayList portals = new TIntArrayList();
+        /**
+         * The cost between each pair of portals, indexed by the position of each in the portal list.
+         */
+        private int[] costs = new int[0];
+        /**
+         * Pairs of cells either side of the east border, with the cell in this sector first.
+         */
+        private final TIntArrayList eastCrossings = new TIntArrayList();
+        /**
+         * Pairs of cells either side of the south border, with the cell in this sector first.
+         */
+        private final TIntArrayList southCrossings = new TIntArrayList();
+
+        private void clear() {
+            portals.resetQuick();
+            costs = new int[0];
+            eastCrossings.resetQuick();
+            southCrossings.resetQuick();
+        }
+    }
+}
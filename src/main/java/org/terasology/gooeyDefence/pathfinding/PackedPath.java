@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.terasology.gooeyDefence.components.enemies.PathComponent;
+import org.terasology.math.geom.BaseVector3i;
+import org.terasology.math.geom.Vector3i;
+
+/**
+ * An immutable path, with each position packed into a single int.
+ * <p>
+ * Step zero is the end of the path, as described in {@link PathComponent}.
+ * A path can share the steps closest to its end with another path. Only the steps before it joins the other path
+ * are stored, so a path that rejoins an entrance path costs no more than its detour.
+ * <p>
+ * Positions are packed with 11 bits for x and z, and 10 bits for y, which is far larger than any defence field.
+ *
+ * @see FlowField
+ */
+public final class PackedPath {
+    /**
+     * A path with no steps.
+     */
+    public static final PackedPath EMPTY = new PackedPath(new int[0], null, 0);
+
+    private static final int HORIZONTAL_BITS = 11;
+    private static final int VERTICAL_BITS = 10;
+    private static final int HORIZONTAL_OFFSET = 1 << (HORIZONTAL_BITS - 1);
+    private static final int VERTICAL_OFFSET = 1 << (VERTICAL_BITS - 1);
+    private static final int HORIZONTAL_MASK = (1 << HORIZONTAL_BITS) - 1;
+    private static final int VERTICAL_MASK = (1 << VERTICAL_BITS) - 1;
+
+    /**
+     * The packed positions of the steps that aren't shared, with the lowest step first.
+     */
+    private final int[] steps;
+    private final PackedPath tail;
+    private final int tailSize;
+    private PathPolyline polyline;
+    private TIntIntMap stepIndex;
+    private int cost = -1;
+
+    /**
+     * Create a new path that shares the steps closest to its end with another path.
+     *
+     * @param steps    The packed positions of the steps before the shared section, starting with the step straight
+     *                 after it. The array must not be modified afterwards.
+     * @param tail     The path to share the end with. May be null if tail size is zero.
+     * @param tailSize The number of steps to share, counting from step zero of the tail
+     */
+    public PackedPath(int[] steps, PackedPath tail, int tailSize) {
+        if (tailSize < 0 || (tail == null ? tailSize != 0 : tailSize > tail.size())) {
+            throw new IllegalArgumentException("Invalid tail size " + tailSize);
+        }
+        this.steps = steps;
+        this.tail = tail;
+        this.tailSize = tailSize;
+    }
+
+    /**
+     * Packs a position into a single int.
+     *
+     * @return The packed position
+     * @throws IllegalArgumentException If the position is too large to be packed
+     */
+    public static int pack(int x, int y, int z) {
+        int packedX = x + HORIZONTAL_OFFSET;
+        int packedY = y + VERTICAL_OFFSET;
+        int packedZ = z + HORIZONTAL_OFFSET;
+        if ((packedX & ~HORIZONTAL_MASK) != 0 || (packedY & ~VERTICAL_MASK) != 0 || (packedZ & ~HORIZONTAL_MASK) != 0) {
+            throw new IllegalArgumentException("Position (" + x + ", " + y + ", " + z + ") is too large to pack");
+        }
+        return (packedX << (VERTICAL_BITS + HORIZONTAL_BITS)) | (packedY << HORIZONTAL_BITS) | packedZ;
+    }
+
+    public static int unpackX(int packed) {
+        return (packed >>> (VERTICAL_BITS + HORIZONTAL_BITS)) - HORIZONTAL_OFFSET;
+    }
+
+    public static int unpackY(int packed) {
+        return ((packed >>> HORIZONTAL_BITS) & VERTICAL_MASK) - VERTICAL_OFFSET;
+    }
+
+    public static int unpackZ(int packed) {
+        return (packed & HORIZONTAL_MASK) - HORIZONTAL_OFFSET;
+    }
+
+    /**
+     * @return The number of steps in the path
+     */
+    public int size() {
+        return tailSize + steps.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param step The step of the path, with zero being the end
+     * @return The packed position of the step
+     */
+    public int getPacked(int step) {
+        return step < tailSize ? tail.getPacked(step) : steps[step - tailSize];
+    }
+
+    public int getX(int step) {
+        return unpackX(getPacked(step));
+    }
+
+    public int getY(int step) {
+        return unpackY(getPacked(step));
+    }
+
+    public int getZ(int step) {
+        return unpackZ(getPacked(step));
+    }
+
+    /**
+     * @param step The step of the path, with zero being the end
+     * @return A new vector holding the position of the step
+     */
+    public Vector3i get(int step) {
+        int packed = getPacked(step);
+        return new Vector3i(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    /**
+     * @param position The position to look for
+     * @return The step at that position, or -1 if the path doesn't pass through it
+     */
+    public int indexOf(BaseVector3i position) {
+        return indexOf(pack(position.x(), position.y(), position.z()));
+    }
+
+    /**
+     * @param packed The packed position to look for
+     * @return The step at that position, or -1 if the path doesn't pass through it
+     * @see #pack(int, int, int)
+     */
+    public int indexOf(int packed) {
+        return getStepIndex().get(packed);
+    }
+
+    /**
+     * Obtain a map from each packed position on this path to the step at that position.
+     * It is only built the first time it is needed, after which any position can be looked up in constant time.
+     *
+     * @return The step index. Positions not on the path map to -1.
+     */
+    public TIntIntMap getStepIndex() {
+        if (stepIndex == null) {
+            stepIndex = new TIntIntHashMap(size(), Constants.DEFAULT_LOAD_FACTOR, 0, -1);
+            /* Go backwards so that the step closest to the end is kept if a position appears twice */
+            for (int step = size() - 1; step >= 0; step--) {
+                stepIndex.put(getPacked(step), step);
+            }
+        }
+        return stepIndex;
+    }
+
+    /**
+     * Obtain the polyline of this path.
+     * It is only built the first time it is needed, and then shared by every enemy following this path.
+     *
+     * @return The polyline of the path, or null if the path is empty
+     */
+    public PathPolyline getPolyline() {
+        if (polyline == null && !isEmpty()) {
+            polyline = new PathPolyline(this);
+        }
+        return polyline;
+    }
+
+    /**
+     * Obtain the cost of following this path, using the same costs as the {@link FlowField}.
+     * It is only worked out the first time it is needed.
+     *
+     * @return The total cost of every move along the path
+     */
+    public int getCost() {
+        if (cost == -1) {
+            cost = 0;
+            for (int step = size() - 1; step > 0; step--) {
+                boolean diagonal = getX(step) != getX(step - 1) && getZ(step) != getZ(step - 1);
+                cost += diagonal ? FlowField.DIAGONAL_COST : FlowField.STRAIGHT_COST;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * @param other The path to compare to
+     * @return True if both paths pass through the same positions in the same order
+     */
+    public boolean sameSteps(PackedPath other) {
+        if (other == this) {
+            return true;
+        }
+        if (other == null || other.size() != size()) {
+            return false;
+        }
+        for (int step = 0; step < size(); step++) {
+            if (getPacked(step) != other.getPacked(step)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import org.terasology.gooeyDefence.components.enemies.PathComponent;
+
+/**
+ * A path parameterised by the distance travelled along it.
+ * <p>
+ * The points are stored in the order they are travelled, along with the total distance from the start of the path
+ * to each point. A position along the path can then be found from a single distance, rather than by walking towards
+ * each block in turn.
+ * <p>
+ * Paths are given with step zero as the end, as described in {@link PathComponent}. A distance of zero is
+ * the start of the path, which is the last step.
+ *
+ * @see PathComponent
+ */
+public class PathPolyline {
+    private final float[] pointX;
+    private final float[] pointY;
+    private final float[] pointZ;
+    /**
+     * The distance from the start of the path to each point.
+     */
+    private final float[] cumulative;
+
+    /**
+     * @param path The path to follow, with step zero as the end. Must not be empty.
+     * @see PackedPath#getPolyline()
+     */
+    PathPolyline(PackedPath path) {
+        int size = path.size();
+        pointX = new float[size];
+        pointY = new float[size];
+        pointZ = new float[size];
+        cumulative = new float[size];
+        for (int i = 0; i < size; i++) {
+            int packed = path.getPacked(size - 1 - i);
+            pointX[i] = PackedPath.unpackX(packed);
+            pointY[i] = PackedPath.unpackY(packed);
+            pointZ[i] = PackedPath.unpackZ(packed);
+            if (i > 0) {
+                float dx = pointX[i] - pointX[i - 1];
+                float dy = pointY[i] - pointY[i - 1];
+                float dz = pointZ[i] - pointZ[i - 1];
+                cumulative[i] = cumulative[i - 1] + (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+        }
+    }
+
+    /**
+     * @return The number of points in the path
+     */
+    public int size() {
+        return cumulative.length;
+    }
+
+    /**
+     * @return The total length of the path, in blocks
+     */
+    public float getLength() {
+        return cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * @param step The step of the path, with zero being the end
+     * @return How far along the path that step is
+     */
+    public float distanceAtStep(int step) {
+        return cumulative[size() - 1 - step];
+    }
+
+    /**
+     * @param segment A segment of the path
+     * @return The step an enemy on that segment is heading towards
+     */
+    public int stepAtSegmentEnd(int segment) {
+        return Math.max(0, size() - 2 - segment);
+    }
+
+    /**
+     * Finds the segment containing a distance along the path.
+     * Segment {@code i} runs from point {@code i} to point {@code i + 1}, in the order they are travelled.
+     * <p>
+     * As enemies only move forwards, the search starts at a hint and walks forward from there.
+     *
+     * @param distance The distance along the path
+     * @param hint     A segment at or before the one containing the distance
+     * @return The segment containing the distance
+     */
+    public int findSegment(float distance, int hint) {
+        int lastSegment = Math.max(0, size() - 2);
+        int segment = Math.min(Math.max(0, hint), lastSegment);
+        while (segment < lastSegment && cumulative[segment + 1] <= distance) {
+            segment++;
+        }
+        return segment;
+    }
+
+    /**
+     * @param segment  The segment containing the distance
+     * @param distance The distance along the path
+     * @return How far between the start and end of the segment the distance is, from zero to one
+     */
+    public float segmentFraction(int segment, float distance) {
+        if (segment + 1 >= size()) {
+            return 0;
+        }
+        float length = cumulative[segment + 1] - cumulative[segment];
+        return length > 0 ? Math.min(1, Math.max(0, (distance - cumulative[segment]) / length)) : 1;
+    }
+
+    /**
+     * Interpolates the x coordinate of a position along the path.
+     *
+     * @param segment  The segment containing the position
+     * @param fraction How far along the segment the position is
+     * @return The x coordinate of the position
+     */
+    public float interpolateX(int segment, float fraction) {
+        return interpolate(pointX, segment, fraction);
+    }
+
+    /**
+     * @see #interpolateX(int, float)
+     */
+    public float interpolateY(int segment, float fraction) {
+        return interpolate(pointY, segment, fraction);
+    }
+
+    /**
+     * @see #interpolateX(int, float)
+     */
+    public float interpolateZ(int segment, float fraction) {
+        return interpolate(pointZ, segment, fraction);
+    }
+
+    /**
+     * @param step The step of the path, with zero being the end
+     * @param x    The x coordinate of the position to measure from
+     * @param y    The y coordinate of the position to measure from
+     * @param z    The z coordinate of the position to measure from
+     * @return The straight line distance between the position and the point at that step
+     */
+    public float distanceToStep(int step, float x, float y, float z) {
+        int index = size() - 1 - step;
+        float dx = pointX[index] - x;
+        float dy = pointY[index] - y;
+        float dz = pointZ[index] - z;
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private float interpolate(float[] points, int segment, float fraction) {
+        if (segment + 1 >= points.length) {
+            return points[points.length - 1];
+        }
+        return points[segment] + (points[segment + 1] - points[segment]) * fraction;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+/**
+ * Options for how the flow field should be rebuilt from scratch.
+ *
+ * @see FlowField
+ */
+public enum RebuildMode {
+    /**
+     * The field is rebuilt on a worker thread, against a copy of the walkability map.
+     * Paths are only published once the whole rebuild has finished.
+     */
+    BACKGROUND,
+    /**
+     * The field is rebuilt on the main thread, a little each tick within a time budget.
+     * Provisional paths are published after the first slice, and refined as the rebuild continues.
+     */
+    TIME_SLICED
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import org.terasology.gooeyDefence.DefenceField;
+import org.terasology.math.geom.Vector3i;
+import org.terasology.world.WorldProvider;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A cached copy of which blocks in the defence field can be passed through.
+ * <p>
+ * One bit is stored per block, covering the field and the layer of ground beneath it. Whether a block can be walked
+ * on is derived from the bits of the block and the one below it. Blocks outside the map are treated as solid.
+ * <p>
+ * The map is loaded from the world once, and then kept in sync by setting each block as it changes.
+ * <p>
+ * A count of penetrable blocks is also kept for each column, so that flat columns can be recognised in constant time.
+ * A column is flat if it is either open, standing on solid ground and clear all the way up, or a wall, solid all the
+ * way up. Where the ground and every column around it is flat, movement reduces to a 2D grid.
+ *
+ * @see EnemyWalkingPlugin
+ */
+public class WalkabilityMap {
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final BitSet penetrable;
+    /**
+     * The number of penetrable blocks in each column, not counting the layer of ground.
+     */
+    private final int[] columnCounts;
+
+    /**
+     * Create a new, fully solid, map covering the defence field.
+     *
+     * @param radius The horizontal distance from the centre to the edge of the field
+     * @param minY   The lowest layer enemies could travel through
+     * @param height The number of layers enemies could travel through
+     */
+    public WalkabilityMap(int radius, int minY, int height) {
+        Vector3i centre = DefenceField.fieldCentre();
+        minX = centre.x - radius;
+        minZ = centre.z - radius;
+        /* Include the layer beneath, so that the lowest layer can be walked on */
+        this.minY = minY - 1;
+        sizeX = 2 * radius + 1;
+        sizeZ = 2 * radius + 1;
+        sizeY = height + 1;
+        penetrable = new BitSet(sizeX * sizeY * sizeZ);
+        columnCounts = new int[sizeX * sizeZ];
+    }
+
+    /**
+     * Create a copy of another map.
+     * The copy is independent, so it can be read on another thread whilst the original is kept in sync.
+     *
+     * @param other The map to copy
+     */
+    public WalkabilityMap(WalkabilityMap other) {
+        minX = other.minX;
+        minY = other.minY;
+        minZ = other.minZ;
+        sizeX = other.sizeX;
+        sizeY = other.sizeY;
+        sizeZ = other.sizeZ;
+        penetrable = (BitSet) other.penetrable.clone();
+        columnCounts = other.columnCounts.clone();
+    }
+
+    /**
+     * Read every block in the map from the world.
+     *
+     * @param world The world to read from
+     */
+    public void load(WorldProvider world) {
+        penetrable.clear();
+        Arrays.fill(columnCounts, 0);
+        for (int x = minX; x < minX + sizeX; x++) {
+            for (int y = minY; y < minY + sizeY; y++) {
+                for (int z = minZ; z < minZ + sizeZ; z++) {
+                    if (world.getBlock(x, y, z).isPenetrable()) {
+                        penetrable.set(index(x, y, z));
+                        if (y > minY) {
+                            columnCounts[columnIndex(x, z)]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Update a single block in the map.
+     * Does nothing if the block is outside the map.
+     *
+     * @param x            The x position of the block
+     * @param y            The y position of the block
+     * @param z            The z position of the block
+     * @param isPenetrable True if the block can now be passed through
+     * @return True if the map changed, false if the block is outside it or could already be passed through or not
+     */
+    public boolean set(int x, int y, int z, boolean isPenetrable) {
+        if (!contains(x, y, z)) {
+            return false;
+        }
+        int index = index(x, y, z);
+        if (penetrable.get(index) != isPenetrable) {
+            penetrable.set(index, isPenetrable);
+            if (y > minY) {
+                columnCounts[columnIndex(x, z)] += isPenetrable ? 1 : -1;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return True if the block can be passed through
+     */
+    public boolean isPenetrable(int x, int y, int z) {
+        return contains(x, y, z) && penetrable.get(index(x, y, z));
+    }
+
+    /**
+     * @return True if the block can be passed through and the block below it can be stood on
+     */
+    public boolean isWalkable(int x, int y, int z) {
+        return isPenetrable(x, y, z) && !isPenetrable(x, y - 1, z);
+    }
+
+    /**
+     * @return True if the column stands on solid ground and can be passed through all the way up
+     */
+    public boolean isOpenColumn(int x, int z) {
+        return containsColumn(x, z)
+                && columnCounts[columnIndex(x, z)] == sizeY - 1
+                && !penetrable.get(index(x, minY, z));
+    }
+
+    /**
+     * Checks if enemies on the lowest layer at a position move on a flat 2D grid.
+     * <p>
+     * That is the case if the position is in an open column, and every column around it is either open or solid all
+     * the way up. Columns outside the map count as solid.
+     *
+     * @return True if the position is on flat ground
+     */
+    public boolean isFlatGround(int x, int y, int z) {
+        if (y != minY + 1 || !isOpenColumn(x, z)) {
+            return false;
+        }
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (!isFlatColumn(x + dx, z + dz)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isFlatColumn(int x, int z) {
+        return !containsColumn(x, z) || columnCounts[columnIndex(x, z)] == 0 || isOpenColumn(x, z);
+    }
+
+    private boolean containsColumn(int x, int z) {
+        return x >= minX && x < minX + sizeX && z >= minZ && z < minZ + sizeZ;
+    }
+
+    private int columnIndex(int x, int z) {
+        return (x - minX) * sizeZ + (z - minZ);
+    }
+
+    private boolean contains(int x, int y, int z) {
+        return x >= minX && x < minX + sizeX
+                && y >= minY && y < minY + sizeY
+                && z >= minZ && z < minZ + sizeZ;
+    }
+
+    private int index(int x, int y, int z) {
+        return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.EnemyManager;
+
+/**
+ * A system that is told when a sleeping targeter may have an enemy in range again.
+ *
+ * @see EnemyManager#sleepUntilCovered(EntityRef, org.terasology.math.geom.Vector3f, float, float)
+ */
+public interface CoverageListener {
+
+    /**
+     * Called when an enemy moves onto a stretch of path covered by a sleeping targeter, or when the targeter's
+     * coverage can no longer be relied on. The targeter is no longer watched once this has been called.
+     *
+     * @param targeter The targeter to wake
+     */
+    void onTargeterWoken(EntityRef targeter);
+}
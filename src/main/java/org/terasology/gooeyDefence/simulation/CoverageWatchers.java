@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import org.terasology.entitySystem.entity.EntityRef;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sleeping targeters, indexed by the steps of path they cover.
+ * <p>
+ * When an enemy heads towards a new step, only the targeters watching that step need to be woken, so a sleeping
+ * targeter costs nothing until an enemy comes near. Enemies that aren't on an entrance path are checked against the
+ * range of every sleeping targeter instead, as they can't be found by step.
+ *
+ * @see PathCoverage
+ * @see CoverageListener
+ */
+public class CoverageWatchers {
+    /**
+     * The number of bits of each key used for the step. Paths are far shorter than this.
+     */
+    private static final int STEP_BITS = 20;
+
+    private final Map<EntityRef, PathCoverage> watched = new HashMap<>();
+    private final TIntObjectMap<List<EntityRef>> byStep = new TIntObjectHashMap<>();
+
+    /**
+     * Start watching the coverage of a targeter.
+     * Replaces any coverage the targeter was already being watched with.
+     *
+     * @param targeter The targeter to watch for
+     * @param coverage The coverage of the targeter
+     */
+    public void watch(EntityRef targeter, PathCoverage coverage) {
+        unwatch(targeter);
+        watched.put(targeter, coverage);
+        for (int id = 0; id < coverage.pathCount(); id++) {
+            int[] runs = coverage.getIntervals(id);
+            for (int i = 0; i < runs.length; i += 2) {
+                for (int step = runs[i]; step <= runs[i + 1]; step++) {
+                    List<EntityRef> targeters = byStep.get(key(id, step));
+                    if (targeters == null) {
+                        targeters = new ArrayList<>(2);
+                        byStep.put(key(id, step), targeters);
+                    }
+                    targeters.add(targeter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop watching a targeter.
+     * Does nothing if the targeter isn't being watched.
+     *
+     * @param targeter The targeter to stop watching
+     */
+    public void unwatch(EntityRef targeter) {
+        PathCoverage coverage = watched.remove(targeter);
+        if (coverage == null) {
+            return;
+        }
+        for (int id = 0; id < coverage.pathCount(); id++) {
+            int[] runs = coverage.getIntervals(id);
+            for (int i = 0; i < runs.length; i += 2) {
+                for (int step = runs[i]; step <= runs[i + 1]; step++) {
+                    List<EntityRef> targeters = byStep.get(key(id, step));
+                    if (targeters != null) {
+                        targeters.remove(targeter);
+                        if (targeters.isEmpty()) {
+                            byStep.remove(key(id, step));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True if no targeter is being watched
+     */
+    public boolean isEmpty() {
+        return watched.isEmpty();
+    }
+
+    /**
+     * Stop watching every targeter.
+     *
+     * @param woken The list to add every targeter that was being watched to
+     */
+    public void wakeAll(List<EntityRef> woken) {
+        woken.addAll(watched.keySet());
+        watched.clear();
+        byStep.clear();
+    }
+
+    /**
+     * Stop watching every targeter that an enemy may now be in range of.
+     * <p>
+     * An enemy on an entrance path wakes the targeters watching any step it has headed towards since the last check,
+     * so that a fast enemy can't skip past a short stretch of coverage.
+     *
+     * @param store     The store holding the enemy
+     * @param slot      The slot of the enemy
+     * @param lastStep  The step the enemy was heading towards when it was last checked, or its current step
+     * @param pathSizes The number of steps in the path from each entrance
+     * @param woken     The list to add each targeter that stopped being watched to
+     */
+    public void wakeFor(EnemyStore store, int slot, int lastStep, int[] pathSizes, List<EntityRef> woken) {
+        if (watched.isEmpty()) {
+            return;
+        }
+        int start = woken.size();
+        int id = StepBuckets.getBucketPath(store, slot, pathSizes);
+        if (id != -1) {
+            int lastChecked = Math.min(Math.max(lastStep, store.getStep(slot)), pathSizes[id] - 1);
+            for (int step = store.getStep(slot); step <= lastChecked; step++) {
+                List<EntityRef> targeters = byStep.get(key(id, step));
+                if (targeters != null) {
+                    for (EntityRef targeter : targeters) {
+                        if (!woken.subList(start, woken.size()).contains(targeter)) {
+                            woken.add(targeter);
+                        }
+                    }
+                }
+            }
+        } else {
+            for (Map.Entry<EntityRef, PathCoverage> entry : watched.entrySet()) {
+                if (entry.getValue().contains(store.getX(slot), store.getY(slot), store.getZ(slot))) {
+                    woken.add(entry.getKey());
+                }
+            }
+        }
+        for (int i = start; i < woken.size(); i++) {
+            unwatch(woken.get(i));
+        }
+    }
+
+    private static int key(int pathId, int step) {
+        return (pathId << STEP_BITS) | step;
+    }
+}
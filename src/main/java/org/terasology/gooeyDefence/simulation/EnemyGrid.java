@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.EnemyManager;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid laid over the defence field that buckets enemies by their horizontal position.
+ * <p>
+ * Range queries only visit the cells overlapping the range, rather than every enemy on the field. Rings between a
+ * minimum and maximum range, and the nearest enemy to a point, can be found directly as well.
+ * Positions outside the field are clamped into the border cells, so no enemy is ever lost from the grid.
+ *
+ * @see EnemyManager
+ */
+public class EnemyGrid {
+    /**
+     * The width and depth of each cell.
+     * Given in blocks
+     */
+    private static final int CELL_SIZE = 4;
+
+    private final int minCoord;
+    private final int cellsPerSide;
+    private final List<List<Entry>> cells;
+    private final Map<EntityRef, Entry> entries = new HashMap<>();
+
+    /**
+     * Create a grid covering a square field centred on the origin.
+     *
+     * @param radius The distance from the centre to the edge of the field, in blocks.
+     */
+    public EnemyGrid(int radius) {
+        minCoord = -radius;
+        cellsPerSide = (2 * radius) / CELL_SIZE + 1;
+        cells = new ArrayList<>(cellsPerSide * cellsPerSide);
+        for (int i = 0; i < cellsPerSide * cellsPerSide; i++) {
+            cells.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Start tracking an enemy.
+     *
+     * @param enemy    The enemy to add
+     * @param position The current position of the enemy
+     */
+    public void add(EntityRef enemy, Vector3f position) {
+        Entry entry = new Entry(enemy);
+        entries.put(enemy, entry);
+        entry.setPosition(position);
+        entry.cell = cellIndex(position.x, position.z);
+        cells.get(entry.cell).add(entry);
+    }
+
+    /**
+     * Update the stored position of an enemy, moving it between cells if needed.
+     *
+     * @param enemy    The enemy that moved
+     * @param position The new position of the enemy
+     */
+    public void update(EntityRef enemy, Vector3f position) {
+        update(enemy, position.x, position.y, position.z);
+    }
+
+    /**
+     * Update the stored position of an enemy, moving it between cells if needed.
+     * Does not allocate unless the enemy wasn't already in the grid.
+     *
+     * @param enemy The enemy that moved
+     * @param x     The new x position of the enemy
+     * @param y     The new y position of the enemy
+     * @param z     The new z position of the enemy
+     */
+    public void update(EntityRef enemy, float x, float y, float z) {
+        Entry entry = entries.get(enemy);
+        if (entry == null) {
+            add(enemy, new Vector3f(x, y, z));
+            return;
+        }
+        entry.setPosition(x, y, z);
+        int newCell = cellIndex(x, z);
+        if (newCell != entry.cell) {
+            cells.get(entry.cell).remove(entry);
+            cells.get(newCell).add(entry);
+            entry.cell = newCell;
+        }
+    }
+
+    /**
+     * Stop tracking an enemy.
+     *
+     * @param enemy The enemy to remove
+     */
+    public void remove(EntityRef enemy) {
+        Entry entry = entries.remove(enemy);
+        if (entry != null) {
+            cells.get(entry.cell).remove(entry);
+        }
+    }
+
+    /**
+     * Remove all enemies from the grid.
+     */
+    public void clear() {
+        entries.clear();
+        cells.forEach(List::clear);
+    }
+
+    /**
+     * Obtain all the enemies within range of the given position.
+     * Only the cells that overlap the range are checked.
+     *
+     * @param pos   The position to search around
+     * @param range The range to search in
+     * @return A set of all the enemies within range
+     */
+    public Set<EntityRef> getInRange(Vector3f pos, float range) {
+        return getInRange(pos, -1, range);
+    }
+
+    /**
+     * Obtain all the enemies within a ring around the given position.
+     * Only the cells that overlap the range are checked.
+     *
+     * @param pos      The position to search around
+     * @param minRange Enemies this close or closer are skipped. Negative to include every enemy up to the range.
+     * @param range    The range to search in
+     * @return A set of all the enemies further than the minimum range, and within range
+     */
+    public Set<EntityRef> getInRange(Vector3f pos, float minRange, float range) {
+        float rangeSqr = range * range;
+        float minRangeSqr = minRange < 0 ? -1 : minRange * minRange;
+        int minX = cellCoord(pos.x - range);
+        int maxX = cellCoord(pos.x + range);
+        int minZ = cellCoord(pos.z - range);
+        int maxZ = cellCoord(pos.z + range);
+
+        Set<EntityRef> result = new HashSet<>();
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                for (Entry entry : cells.get(cellX * cellsPerSide + cellZ)) {
+                    float distanceSqr = entry.distanceSquared(pos);
+                    if (distanceSqr <= rangeSqr && distanceSqr > minRangeSqr) {
+                        result.add(entry.enemy);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the enemy closest to the given position, skipping some enemies.
+     * <p>
+     * Cells are searched in rings outwards from the cell containing the position. The search stops as soon as the
+     * next ring is further away than the closest enemy found, so only the cells near the position are visited.
+     *
+     * @param pos      The position to search around
+     * @param range    The furthest away an enemy can be
+     * @param excluded The enemies to skip
+     * @return The closest enemy that isn't excluded, or the null entity if there is none within range
+     */
+    public EntityRef getNearest(Vector3f pos, float range, Set<EntityRef> excluded) {
+        int centreX = cellCoord(pos.x);
+        int centreZ = cellCoord(pos.z);
+        int maxRing = (int) Math.ceil(range / CELL_SIZE) + 1;
+
+        EntityRef nearest = EntityRef.NULL;
+        float nearestSqr = range * range;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            /* Every cell in this ring is at least this far away, as the position lies inside the centre cell */
+            float ringDistance = (ring - 1) * CELL_SIZE;
+            if (ring > 1 && ringDistance * ringDistance > nearestSqr) {
+                break;
+            }
+            for (int cellX = centreX - ring; cellX <= centreX + ring; cellX++) {
+                if (cellX < 0 || cellX >= cellsPerSide) {
+                    continue;
+                }
+                boolean edgeColumn = cellX == centreX - ring || cellX == centreX + ring;
+                int step = edgeColumn ? 1 : 2 * ring;
+                for (int cellZ = centreZ - ring; cellZ <= centreZ + ring; cellZ += step) {
+                    if (cellZ < 0 || cellZ >= cellsPerSide) {
+                        continue;
+                    }
+                    for (Entry entry : cells.get(cellX * cellsPerSide + cellZ)) {
+                        float distanceSqr = entry.distanceSquared(pos);
+                        if (distanceSqr <= nearestSqr && !excluded.contains(entry.enemy)
+                                && (distanceSqr < nearestSqr || nearest == EntityRef.NULL)) {
+                            nearest = entry.enemy;
+                            nearestSqr = distanceSqr;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * @param x The x position in the world
+     * @param z The z position in the world
+     * @return The index of the cell containing that position
+     */
+    private int cellIndex(float x, float z) {
+        return cellCoord(x) * cellsPerSide + cellCoord(z);
+    }
+
+    /**
+     * Converts a single world coordinate into a cell coordinate, clamping it to the grid.
+     *
+     * @param value The world coordinate
+     * @return The cell coordinate along that axis
+     */
+    private int cellCoord(float value) {
+        int coord = (int) Math.floor((value - minCoord) / CELL_SIZE);
+        return Math.min(Math.max(0, coord), cellsPerSide - 1);
+    }
+
+    /**
+     * The position of an enemy as last seen by the grid.
+     */
+    private static final class Entry {
+        private final EntityRef enemy;
+        private float x;
+        private float y;
+        private float z;
+        private int cell;
+
+        private Entry(EntityRef enemy) {
+            this.enemy = enemy;
+        }
+
+        private void setPosition(Vector3f position) {
+            setPosition(position.x, position.y, position.z);
+        }
+
+        private void setPosition(float newX, float newY, float newZ) {
+            x = newX;
+            y = newY;
+            z = newZ;
+        }
+
+        private float distanceSquared(Vector3f pos) {
+            float dx = x - pos.x;
+            float dy = y - pos.y;
+            float dz = z - pos.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.terasology.entitySystem.entity.EntityRef;
+
+/**
+ * Orders enemies when picking the best one within a range.
+ * <p>
+ * The rank should come from state that is already kept up to date, such as the {@link EnemyStore}, so that ranking
+ * a candidate doesn't need to go through the entity system.
+ *
+ * @see StepBuckets#getBest(PathCoverage, EnemyStore, EnemyRanking)
+ */
+@FunctionalInterface
+public interface EnemyRanking {
+    /**
+     * @param enemy The enemy to rank
+     * @return The rank of the enemy. Lower ranks are better.
+     */
+    float rank(EntityRef enemy);
+}
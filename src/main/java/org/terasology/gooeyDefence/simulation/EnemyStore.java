@@ -0,0 +1,365 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.EnemyManager;
+import org.terasology.gooeyDefence.components.enemies.PathComponent;
+import org.terasology.gooeyDefence.pathfinding.PathPolyline;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Packed movement state for every enemy on the field.
+ * <p>
+ * Each enemy is given a dense slot, and its position, speed and path progress are held in primitive arrays
+ * indexed by that slot. This lets the movement step run over flat arrays instead of going through the entity
+ * system for every enemy. Slots are kept dense by moving the last enemy into any slot that is freed, so a slot
+ * is only valid until the next removal.
+ * <p>
+ * The health of each enemy is mirrored here as well, so that targeters can rank enemies by health or progress
+ * straight from the arrays.
+ * <p>
+ * Progress along a path is stored as the distance travelled along its {@link PathPolyline}. Moving an enemy is a
+ * single addition, and its position is interpolated from that distance.
+ * <p>
+ * The store is the authority on enemy positions whilst the field is running. They are written back to the
+ * entities by the {@link EnemyManager} once per update.
+ *
+ * @see EnemyManager
+ */
+public class EnemyStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<EntityRef, Integer> slots = new HashMap<>();
+    private int size;
+
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    private PathComponent[] paths = new PathComponent[INITIAL_CAPACITY];
+    /**
+     * The polyline of each enemy's path. Null if the enemy is being held in place.
+     */
+    private PathPolyline[] polylines = new PathPolyline[INITIAL_CAPACITY];
+    private float[] positionX = new float[INITIAL_CAPACITY];
+    private float[] positionY = new float[INITIAL_CAPACITY];
+    private float[] positionZ = new float[INITIAL_CAPACITY];
+    private float[] speed = new float[INITIAL_CAPACITY];
+    private float[] travelled = new float[INITIAL_CAPACITY];
+    private float[] remaining = new float[INITIAL_CAPACITY];
+    private int[] health = new int[INITIAL_CAPACITY];
+    private int[] segment = new int[INITIAL_CAPACITY];
+    private int[] step = new int[INITIAL_CAPACITY];
+    private boolean[] stepChanged = new boolean[INITIAL_CAPACITY];
+    private boolean[] atEnd = new boolean[INITIAL_CAPACITY];
+    private boolean[] moved = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * Add an enemy to the store, giving it the next free slot.
+     *
+     * @param enemy    The enemy to add
+     * @param position The current position of the enemy
+     * @param speed    The movement speed of the enemy, in blocks per second
+     * @param path     The path the enemy is following
+     * @param polyline The polyline of that path, or null if the enemy shouldn't move
+     * @return The slot the enemy was given
+     */
+    public int add(EntityRef enemy, Vector3f position, float speed, PathComponent path, PathPolyline polyline) {
+        Integer existing = slots.get(enemy);
+        if (existing != null) {
+            return existing;
+        }
+        ensureCapacity(size + 1);
+        int slot = size++;
+        slots.put(enemy, slot);
+        entities[slot] = enemy;
+        positionX[slot] = position.x;
+        positionY[slot] = position.y;
+        positionZ[slot] = position.z;
+        this.speed[slot] = speed;
+        remaining[slot] = Float.MAX_VALUE;
+        health[slot] = 0;
+        moved[slot] = false;
+        setPath(slot, path, polyline);
+        return slot;
+    }
+
+    /**
+     * Remove an enemy from the store.
+     * The enemy in the last slot is moved into the freed slot.
+     *
+     * @param enemy The enemy to remove
+     */
+    public void remove(EntityRef enemy) {
+        Integer removed = slots.remove(enemy);
+        if (removed == null) {
+            return;
+        }
+        int slot = removed;
+        int last = --size;
+        if (slot != last) {
+            entities[slot] = entities[last];
+            paths[slot] = paths[last];
+            polylines[slot] = polylines[last];
+            positionX[slot] = positionX[last];
+            positionY[slot] = positionY[last];
+            positionZ[slot] = positionZ[last];
+            speed[slot] = speed[last];
+            travelled[slot] = travelled[last];
+            remaining[slot] = remaining[last];
+            health[slot] = health[last];
+            segment[slot] = segment[last];
+            step[slot] = step[last];
+            stepChanged[slot] = stepChanged[last];
+            atEnd[slot] = atEnd[last];
+            moved[slot] = moved[last];
+            slots.put(entities[slot], slot);
+        }
+        entities[last] = null;
+        paths[last] = null;
+        polylines[last] = null;
+    }
+
+    /**
+     * Remove all enemies from the store.
+     */
+    public void clear() {
+        Arrays.fill(entities, 0, size, null);
+        Arrays.fill(paths, 0, size, null);
+        Arrays.fill(polylines, 0, size, null);
+        slots.clear();
+        size = 0;
+    }
+
+    /**
+     * @return The number of enemies in the store. All slots below this are in use.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param enemy The enemy to look up
+     * @return The slot of the enemy, or -1 if it is not in the store
+     */
+    public int getSlot(EntityRef enemy) {
+        Integer slot = slots.get(enemy);
+        return slot != null ? slot : -1;
+    }
+
+    public EntityRef getEntity(int slot) {
+        return entities[slot];
+    }
+
+    public PathComponent getPath(int slot) {
+        return paths[slot];
+    }
+
+    /**
+     * Set the path an enemy is following.
+     * <p>
+     * The enemy is placed on the polyline at the point closest to its current position that lies between the
+     * previous step and the step the path component is heading towards.
+     *
+     * @param slot     The slot of the enemy
+     * @param path     The path component of the enemy
+     * @param polyline The polyline of that path, or null if the enemy shouldn't move
+     */
+    public void setPath(int slot, PathComponent path, PathPolyline polyline) {
+        paths[slot] = path;
+        polylines[slot] = polyline;
+        step[slot] = path.getStep();
+        stepChanged[slot] = false;
+        atEnd[slot] = false;
+        if (polyline == null) {
+            return;
+        }
+        int goalStep = Math.min(path.getStep(), polyline.size() - 1);
+        float goalDistance = polyline.distanceAtStep(goalStep);
+        float previousDistance = goalStep + 1 < polyline.size() ? polyline.distanceAtStep(goalStep + 1) : 0;
+        float toGoal = polyline.distanceToStep(goalStep, positionX[slot], positionY[slot], positionZ[slot]);
+
+        travelled[slot] = Math.max(previousDistance, goalDistance - toGoal);
+        remaining[slot] = polyline.getLength() - travelled[slot];
+        segment[slot] = polyline.findSegment(travelled[slot], 0);
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return The polyline the enemy is following, or null if it is being held in place
+     */
+    public PathPolyline getPolyline(int slot) {
+        return polylines[slot];
+    }
+
+    public void setSpeed(int slot, float speed) {
+        this.speed[slot] = speed;
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return The step of the path the enemy is heading towards
+     */
+    public int getStep(int slot) {
+        return step[slot];
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return How far the enemy still has to travel to reach the end of its path
+     */
+    public float getRemainingDistance(int slot) {
+        return remaining[slot];
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return The health of the enemy, as last recorded with {@link #setHealth(int, int)}
+     */
+    public int getHealth(int slot) {
+        return health[slot];
+    }
+
+    /**
+     * Record the current health of an enemy, so that it can be compared without going through the entity system.
+     *
+     * @param slot   The slot of the enemy
+     * @param health The health of the enemy
+     */
+    public void setHealth(int slot, int health) {
+        this.health[slot] = health;
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return True if the enemy reached the end of its path during the last movement step
+     */
+    public boolean isAtEnd(int slot) {
+        return atEnd[slot];
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return True if the enemy passed at least one step of its path during the last movement step
+     */
+    public boolean hasStepChanged(int slot) {
+        return stepChanged[slot];
+    }
+
+    /**
+     * @param slot The slot of the enemy
+     * @return True if the enemy changed position during the last movement step
+     */
+    public boolean hasMoved(int slot) {
+        return moved[slot];
+    }
+
+    /**
+     * Copies the position of an enemy into the given vector.
+     *
+     * @param slot   The slot of the enemy
+     * @param output The vector to store the position in
+     * @return The output vector, for chaining
+     */
+    public Vector3f getPosition(int slot, Vector3f output) {
+        output.set(positionX[slot], positionY[slot], positionZ[slot]);
+        return output;
+    }
+
+    public float getX(int slot) {
+        return positionX[slot];
+    }
+
+    public float getY(int slot) {
+        return positionY[slot];
+    }
+
+    public float getZ(int slot) {
+        return positionZ[slot];
+    }
+
+    /**
+     * Move every enemy in the given range of slots along its path.
+     * <p>
+     * Enemies advance their distance travelled and have their position interpolated from it. Enemies that reach the
+     * end of their path stop there, and are flagged so that they can be handled. Enemies without a polyline are
+     * held in place.
+     * Only primitive maths is used, so no objects are allocated however many enemies are moved.
+     *
+     * @param from  The first slot to move, inclusive
+     * @param to    The last slot to move, exclusive
+     * @param delta The time elapsed since the last step, in seconds
+     */
+    public void advance(int from, int to, float delta) {
+        for (int slot = from; slot < to; slot++) {
+            PathPolyline polyline = polylines[slot];
+            if (polyline == null || atEnd[slot]) {
+                moved[slot] = false;
+                stepChanged[slot] = false;
+                continue;
+            }
+            float distance = travelled[slot] + speed[slot] * delta;
+            if (distance >= polyline.getLength()) {
+                /* Don't overshoot the end of the path */
+                distance = polyline.getLength();
+                atEnd[slot] = true;
+            }
+            travelled[slot] = distance;
+            remaining[slot] = polyline.getLength() - distance;
+
+            int newSegment = polyline.findSegment(distance, segment[slot]);
+            int newStep = atEnd[slot] ? 0 : polyline.stepAtSegmentEnd(newSegment);
+            stepChanged[slot] = newStep != step[slot];
+            segment[slot] = newSegment;
+            step[slot] = newStep;
+
+            float fraction = polyline.segmentFraction(newSegment, distance);
+            positionX[slot] = polyline.interpolateX(newSegment, fraction);
+            positionY[slot] = polyline.interpolateY(newSegment, fraction);
+            positionZ[slot] = polyline.interpolateZ(newSegment, fraction);
+            moved[slot] = true;
+        }
+    }
+
+    /**
+     * Grow the arrays so that they can hold at least the given number of enemies.
+     *
+     * @param capacity The number of enemies needed
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entities.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, entities.length * 2);
+        entities = Arrays.copyOf(entities, newCapacity);
+        paths = Arrays.copyOf(paths, newCapacity);
+        polylines = Arrays.copyOf(polylines, newCapacity);
+        positionX = Arrays.copyOf(positionX, newCapacity);
+        positionY = Arrays.copyOf(positionY, newCapacity);
+        positionZ = Arrays.copyOf(positionZ, newCapacity);
+        speed = Arrays.copyOf(speed, newCapacity);
+        travelled = Arrays.copyOf(travelled, newCapacity);
+        remaining = Arrays.copyOf(remaining, newCapacity);
+        health = Arrays.copyOf(health, newCapacity);
+        segment = Arrays.copyOf(segment, newCapacity);
+        step = Arrays.copyOf(step, newCapacity);
+        stepChanged = Arrays.copyOf(stepChanged, newCapacity);
+        atEnd = Arrays.copyOf(atEnd, newCapacity);
+        moved = Arrays.copyOf(moved, newCapacity);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Moves a range of enemies in an {@link EnemyStore}, splitting the range in half until it is small enough to move
+ * on a single thread.
+ * <p>
+ * Each slot is only read and written by the task that owns it, so the halves can safely run in parallel.
+ * No entity system access happens here. Anything that needs to touch entities is flagged in the store and
+ * handled afterwards on the main thread.
+ *
+ * @see EnemyStore#advance(int, int, float)
+ */
+public class MovementTask extends RecursiveAction {
+    /**
+     * The number of enemies below which a range is moved directly rather than split further.
+     */
+    public static final int SPLIT_THRESHOLD = 128;
+
+    private final EnemyStore store;
+    private final int from;
+    private final int to;
+    private final float delta;
+
+    /**
+     * @param store The store holding the enemies
+     * @param from  The first slot to move, inclusive
+     * @param to    The last slot to move, exclusive
+     * @param delta The time elapsed since the last step, in seconds
+     */
+    public MovementTask(EnemyStore store, int from, int to, float delta) {
+        this.store = store;
+        this.from = from;
+        this.to = to;
+        this.delta = delta;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= SPLIT_THRESHOLD) {
+            store.advance(from, to, delta);
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new MovementTask(store, from, middle, delta),
+                    new MovementTask(store, middle, to, delta));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.terasology.gooeyDefence.EnemyManager;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.List;
+
+/**
+ * The stretches of each entrance path that fall within range of a single tower targeter.
+ * <p>
+ * Towers never move and enemies on an entrance path only ever lie between two of its steps, so which steps a
+ * targeter can reach only changes when the path or the targeter does. Each path is stored as a list of runs of
+ * steps, where an enemy heading towards any step in a run could be in range. Enemies in those runs are then checked
+ * against the exact range, and no other enemy on that path needs to be looked at.
+ * <p>
+ * A minimum range can be given, in which case only the ring between the minimum and the maximum range is covered.
+ *
+ * @see StepBuckets
+ * @see EnemyManager
+ */
+public final class PathCoverage {
+    private final float x;
+    private final float y;
+    private final float z;
+    private final float minRange;
+    private final float range;
+    /**
+     * The paths the coverage was worked out for, so that a stale coverage can be recognised.
+     */
+    private final PackedPath[] paths;
+    /**
+     * For each path, the first and last step of each covered run, both inclusive, one after the other.
+     */
+    private final int[][] intervals;
+
+    private PathCoverage(Vector3f pos, float minRange, float range, PackedPath[] paths, int[][] intervals) {
+        x = pos.x;
+        y = pos.y;
+        z = pos.z;
+        this.minRange = minRange;
+        this.range = range;
+        this.paths = paths;
+        this.intervals = intervals;
+    }
+
+    /**
+     * Work out which steps of each path fall within range of a position.
+     * <p>
+     * An enemy heading towards a step lies on the segment from the step before it, so a step is covered if any part
+     * of that segment is in range.
+     *
+     * @param pos      The position of the targeter
+     * @param minRange Enemies this close or closer are not covered. Negative to cover everything up to the range.
+     * @param range    The range of the targeter
+     * @param paths    The path from each entrance. Paths that haven't been found yet may be null.
+     * @return The coverage of the targeter
+     */
+    public static PathCoverage build(Vector3f pos, float minRange, float range, List<PackedPath> paths) {
+        PackedPath[] pathArray = paths.toArray(new PackedPath[paths.size()]);
+        int[][] intervals = new int[pathArray.length][];
+        TIntArrayList runs = new TIntArrayList();
+        for (int id = 0; id < pathArray.length; id++) {
+            runs.resetQuick();
+            PackedPath path = pathArray[id];
+            int size = path != null ? path.size() : 0;
+            for (int step = 0; step < size; step++) {
+                int previous = Math.min(step + 1, size - 1);
+                if (isSegmentCovered(path, previous, step, pos, minRange, range)) {
+                    if (!runs.isEmpty() && runs.get(runs.size() - 1) == step - 1) {
+                        runs.set(runs.size() - 1, step);
+                    } else {
+                        runs.add(step);
+                        runs.add(step);
+                    }
+                }
+            }
+            intervals[id] = runs.toArray();
+        }
+        return new PathCoverage(pos, minRange, range, pathArray, intervals);
+    }
+
+    /**
+     * Checks if any part of the segment between two steps of a path lies between the minimum and maximum range.
+     */
+    private static boolean isSegmentCovered(PackedPath path, int from, int to, Vector3f pos,
+                                            float minRange, float range) {
+        float startX = path.getX(from) - pos.x;
+        float startY = path.getY(from) - pos.y;
+        float startZ = path.getZ(from) - pos.z;
+        float dirX = path.getX(to) - path.getX(from);
+        float dirY = path.getY(to) - path.getY(from);
+        float dirZ = path.getZ(to) - path.getZ(from);
+
+        float lengthSqr = dirX * dirX + dirY * dirY + dirZ * dirZ;
+        float fraction = 0;
+        if (lengthSqr > 0) {
+            fraction = -(startX * dirX + startY * dirY + startZ * dirZ) / lengthSqr;
+            fraction = Math.min(Math.max(0, fraction), 1);
+        }
+        float nearestSqr = lengthSquared(startX + dirX * fraction, startY + dirY * fraction, startZ + dirZ * fraction);
+        float furthestSqr = Math.max(
+                lengthSquared(startX, startY, startZ),
+                lengthSquared(startX + dirX, startY + dirY, startZ + dirZ));
+        return nearestSqr <= range * range && (minRange < 0 || furthestSqr > minRange * minRange);
+    }
+
+    private static float lengthSquared(float dx, float dy, float dz) {
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Checks if this coverage is still valid for a targeter.
+     *
+     * @param pos      The position of the targeter
+     * @param minRange The minimum range of the targeter
+     * @param range    The range of the targeter
+     * @param paths    The current path from each entrance
+     * @return True if the coverage was worked out for the same position, ranges and paths
+     */
+    public boolean matches(Vector3f pos, float minRange, float range, List<PackedPath> paths) {
+        if (pos.x != x || pos.y != y || pos.z != z || this.minRange != minRange || this.range != range
+                || paths.size() != this.paths.length) {
+            return false;
+        }
+        for (int id = 0; id < this.paths.length; id++) {
+            if (paths.get(id) != this.paths[id]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of paths covered
+     */
+    public int pathCount() {
+        return intervals.length;
+    }
+
+    /**
+     * @param pathId The ID of the path
+     * @return The first and last step of each covered run of the path, one after the other. Must not be modified.
+     */
+    public int[] getIntervals(int pathId) {
+        return intervals[pathId];
+    }
+
+    /**
+     * Checks a position against the exact range of the targeter.
+     *
+     * @return True if the position is within range, and further away than the minimum range
+     */
+    public boolean contains(float posX, float posY, float posZ) {
+        float distanceSqr = lengthSquared(posX - x, posY - y, posZ - z);
+        return distanceSqr <= range * range && (minRange < 0 || distanceSqr > minRange * minRange);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.systems.BaseComponentSystem;
+import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.logic.delay.DelayManager;
+import org.terasology.logic.delay.DelayedActionTriggeredEvent;
+import org.terasology.logic.delay.PeriodicActionTriggeredEvent;
+import org.terasology.registry.Share;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The clock that all of the Gooey's Defence simulation runs on.
+ * <p>
+ * The clock advances in fixed ticks, independent of the frame rate. Long frames are caught up with a bounded number
+ * of extra ticks, and any time beyond that is dropped, so the cost of a second of simulation stays predictable.
+ * <p>
+ * Also provides delayed and periodic actions that mirror those of the {@link DelayManager}, but are measured in
+ * simulation time. They send the same {@link DelayedActionTriggeredEvent} and {@link PeriodicActionTriggeredEvent}.
+ *
+ * @see SimulationTickListener
+ */
+@Share(SimulationClock.class)
+@RegisterSystem
+public class SimulationClock extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /**
+     * The length of a single tick, in seconds.
+     */
+    public static final float TICK_LENGTH = 0.05f;
+    /**
+     * The length of a single tick, in milliseconds.
+     */
+    public static final long TICK_LENGTH_MS = 50;
+    /**
+     * The most ticks that will be run to catch up after a single long frame.
+     */
+    private static final int MAX_SUBSTEPS = 5;
+
+    private final List<SimulationTickListener> listeners = new ArrayList<>();
+    private final List<SimulationTickListener> lateListeners = new ArrayList<>();
+    private final PriorityQueue<ScheduledAction> actionQueue =
+            new PriorityQueue<>(Comparator.comparingLong(action -> action.triggerTick));
+    private final Map<EntityRef, Map<String, ScheduledAction>> delayedActions = new HashMap<>();
+    private final Map<EntityRef, Map<String, ScheduledAction>> periodicActions = new HashMap<>();
+
+    private float accumulator;
+    private long currentTick;
+
+    /**
+     * Register a system to be advanced every tick.
+     * Listeners are called in the order they were added.
+     *
+     * @param listener The listener to add
+     */
+    public void addTickListener(SimulationTickListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Register a system to be advanced every tick, once the actions due that tick have been triggered.
+     * This lets a system gather the actions of a tick as they trigger, and then handle them all together.
+     * Late listeners are called in the order they were added.
+     *
+     * @param listener The listener to add
+     */
+    public void addLateTickListener(SimulationTickListener listener) {
+        lateListeners.add(listener);
+    }
+
+    /**
+     * @return The number of ticks that have elapsed since the game started
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    @Override
+    public void update(float delta) {
+        accumulator += delta;
+        int substeps = 0;
+        while (accumulator >= TICK_LENGTH && substeps < MAX_SUBSTEPS) {
+            accumulator -= TICK_LENGTH;
+            runTick();
+            substeps++;
+        }
+        /* Drop any time we couldn't catch up on */
+        if (accumulator >= TICK_LENGTH) {
+            accumulator %= TICK_LENGTH;
+        }
+    }
+
+    /**
+     * Schedule an action to be triggered once, after a delay.
+     * Replaces any delayed action with the same ID on the entity.
+     *
+     * @param entity   The entity to send the event to
+     * @param actionId The ID of the action
+     * @param delay    How long to wait, in milliseconds of simulation time
+     * @see DelayedActionTriggeredEvent
+     */
+    public void addDelayedAction(EntityRef entity, String actionId, long delay) {
+        schedule(delayedActions, new ScheduledAction(entity, actionId, currentTick + toTicks(delay), 0));
+    }
+
+    /**
+     * Cancel a delayed action, if it exists.
+     *
+     * @param entity   The entity the action is on
+     * @param actionId The ID of the action
+     */
+    public void cancelDelayedAction(EntityRef entity, String actionId) {
+        cancel(delayedActions, entity, actionId);
+    }
+
+    /**
+     * @param entity   The entity the action is on
+     * @param actionId The ID of the action
+     * @return True if the delayed action is scheduled and hasn't triggered yet
+     */
+    public boolean hasDelayedAction(EntityRef entity, String actionId) {
+        return find(delayedActions, entity, actionId) != null;
+    }
+
+    /**
+     * Schedule an action to be triggered repeatedly.
+     * Replaces any periodic action with the same ID on the entity.
+     * <p>
+     * With no initial delay, the first trigger happens in the current tick if it is still triggering actions, such as
+     * when scheduled by a tick listener, and otherwise in the next tick.
+     *
+     * @param entity       The entity to send the event to
+     * @param actionId     The ID of the action
+     * @param initialDelay How long to wait before the first trigger, in milliseconds of simulation time. May be zero.
+     * @param period       How long to wait between triggers, in milliseconds of simulation time
+     * @see PeriodicActionTriggeredEvent
+     */
+    public void addPeriodicAction(EntityRef entity, String actionId, long initialDelay, long period) {
+        long firstTick = initialDelay > 0 ? currentTick + toTicks(initialDelay) : currentTick;
+        schedule(periodicActions, new ScheduledAction(entity, actionId, firstTick, toTicks(period)));
+    }
+
+    /**
+     * Cancel a periodic action, if it exists.
+     *
+     * @param entity   The entity the action is on
+     * @param actionId The ID of the action
+     */
+    public void cancelPeriodicAction(EntityRef entity, String actionId) {
+        cancel(periodicActions, entity, actionId);
+    }
+
+    /**
+     * @param entity   The entity the action is on
+     * @param actionId The ID of the action
+     * @return True if the periodic action is scheduled
+     */
+    public boolean hasPeriodicAction(EntityRef entity, String actionId) {
+        return find(periodicActions, entity, actionId) != null;
+    }
+
+    /**
+     * Advances the simulation by a single tick.
+     * All listeners are advanced first, then any actions that are due are triggered, and then the late listeners are
+     * advanced.
+     */
+    private void runTick() {
+        currentTick++;
+        for (SimulationTickListener listener : listeners) {
+            listener.onSimulationTick(TICK_LENGTH);
+        }
+
+        while (!actionQueue.isEmpty() && actionQueue.peek().triggerTick <= currentTick) {
+            ScheduledAction action = actionQueue.poll();
+            if (action.cancelled) {
+                continue;
+            }
+            if (!action.entity.exists()) {
+                removeEntry(action.isPeriodic() ? periodicActions : delayedActions, action);
+                continue;
+            }
+            if (action.isPeriodic()) {
+                action.triggerTick += action.periodTicks;
+                actionQueue.add(action);
+                action.entity.send(new PeriodicActionTriggeredEvent(action.actionId));
+            } else {
+                removeEntry(delayedActions, action);
+                action.entity.send(new DelayedActionTriggeredEvent(action.actionId));
+            }
+        }
+
+        for (SimulationTickListener listener : lateListeners) {
+            listener.onSimulationTick(TICK_LENGTH);
+        }
+    }
+
+    /**
+     * Converts a time into a number of ticks, rounding up so that an action is never triggered early.
+     *
+     * @param milliseconds The time to convert
+     * @return The number of ticks. Always at least one
+     */
+    public static long toTicks(long milliseconds) {
+        return Math.max(1, (milliseconds + TICK_LENGTH_MS - 1) / TICK_LENGTH_MS);
+    }
+
+    private void schedule(Map<EntityRef, Map<String, ScheduledAction>> actions, ScheduledAction action) {
+        ScheduledAction old = actions.computeIfAbsent(action.entity, entity -> new HashMap<>())
+                .put(action.actionId, action);
+        if (old != null) {
+            old.cancelled = true;
+        }
+        actionQueue.add(action);
+    }
+
+    private void cancel(Map<EntityRef, Map<String, ScheduledAction>> actions, EntityRef entity, String actionId) {
+        ScheduledAction action = find(actions, entity, actionId);
+        if (action != null) {
+            action.cancelled = true;
+            removeEntry(actions, action);
+        }
+    }
+
+    private ScheduledAction find(Map<EntityRef, Map<String, ScheduledAction>> actions, EntityRef entity, String actionId) {
+        Map<String, ScheduledAction> entityActions = actions.get(entity);
+        return entityActions != null ? entityActions.get(actionId) : null;
+    }
+
+    private void removeEntry(Map<EntityRef, Map<String, ScheduledAction>> actions, ScheduledAction action) {
+        Map<String, ScheduledAction> entityActions = actions.get(action.entity);
+        if (entityActions != null && entityActions.get(action.actionId) == action) {
+            entityActions.remove(action.actionId);
+            if (entityActions.isEmpty()) {
+                actions.remove(action.entity);
+            }
+        }
+    }
+
+    /**
+     * An action waiting to be triggered.
+     * Cancelled actions are left in the queue and skipped when they come up.
+     */
+    private static final class ScheduledAction {
+        private final EntityRef entity;
+        private final String actionId;
+        private final long periodTicks;
+        private long triggerTick;
+        private boolean cancelled;
+
+        private ScheduledAction(EntityRef entity, String actionId, long triggerTick, long periodTicks) {
+            this.entity = entity;
+            this.actionId = actionId;
+            this.triggerTick = triggerTick;
+            this.periodTicks = periodTicks;
+        }
+
+        private boolean isPeriodic() {
+            return periodTicks > 0;
+        }
+    }
+}
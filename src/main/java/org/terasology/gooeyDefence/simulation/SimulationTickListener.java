@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+/**
+ * A system that advances every time the {@link SimulationClock} ticks.
+ *
+ * @see SimulationClock
+ */
+public interface SimulationTickListener {
+
+    /**
+     * Called once per simulation tick.
+     * The tick length is always the same, regardless of the frame rate.
+     *
+     * @param tickLength The length of the tick, in seconds
+     */
+    void onSimulationTick(float tickLength);
+}
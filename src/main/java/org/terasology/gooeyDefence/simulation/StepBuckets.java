@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.components.enemies.EntrancePathComponent;
+import org.terasology.gooeyDefence.components.enemies.PathComponent;
+import org.terasology.gooeyDefence.pathfinding.PathPolyline;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The enemies on each entrance path, bucketed by the step they are heading towards.
+ * <p>
+ * The buckets are rebuilt from the {@link EnemyStore} with a counting sort, so that every bucket is a contiguous run
+ * of a single array. A run of steps from a {@link PathCoverage} is then a single run of that array as well.
+ * Enemies that aren't following an entrance path are kept in a separate list, and are always checked by distance.
+ * <p>
+ * Enemies are stored rather than slots, as slots move when enemies are removed between rebuilds.
+ * Enemies that have since been removed are skipped.
+ *
+ * @see PathCoverage
+ */
+public class StepBuckets {
+    /**
+     * For each path, the index in the enemies array that each step's bucket starts at.
+     * Has one more entry than the path has steps, holding the end of the last bucket.
+     */
+    private int[][] offsets = new int[0][];
+    private EntityRef[] enemies = new EntityRef[64];
+    private EntityRef[] unbucketed = new EntityRef[16];
+    private int unbucketedCount;
+
+    /**
+     * Re-sort every enemy in the store into its bucket.
+     * Runs in time linear in the number of enemies and the total length of the paths.
+     *
+     * @param store     The store to read the enemies from
+     * @param pathSizes The number of steps in the path from each entrance
+     */
+    public void rebuild(EnemyStore store, int[] pathSizes) {
+        if (offsets.length != pathSizes.length) {
+            offsets = new int[pathSizes.length][];
+        }
+        for (int id = 0; id < pathSizes.length; id++) {
+            if (offsets[id] == null || offsets[id].length != pathSizes[id] + 1) {
+                offsets[id] = new int[pathSizes[id] + 1];
+            } else {
+                Arrays.fill(offsets[id], 0);
+            }
+        }
+        if (enemies.length < store.size()) {
+            enemies = new EntityRef[Math.max(store.size(), enemies.length * 2)];
+        }
+        Arrays.fill(unbucketed, 0, unbucketedCount, null);
+        unbucketedCount = 0;
+
+        /* Count each bucket, then turn the counts into the start of each bucket */
+        for (int slot = 0; slot < store.size(); slot++) {
+            int id = getBucketPath(store, slot, pathSizes);
+            if (id != -1) {
+                offsets[id][store.getStep(slot) + 1]++;
+            }
+        }
+        int base = 0;
+        for (int[] pathOffsets : offsets) {
+            pathOffsets[0] = base;
+            for (int step = 1; step < pathOffsets.length; step++) {
+                pathOffsets[step] += pathOffsets[step - 1];
+            }
+            base = pathOffsets[pathOffsets.length - 1];
+        }
+
+        /* Fill each bucket, which moves each start along to the end of its bucket */
+        for (int slot = 0; slot < store.size(); slot++) {
+            int id = getBucketPath(store, slot, pathSizes);
+            if (id != -1) {
+                enemies[offsets[id][store.getStep(slot)]++] = store.getEntity(slot);
+            } else {
+                addUnbucketed(store.getEntity(slot));
+            }
+        }
+        Arrays.fill(enemies, base, enemies.length, null);
+
+        /* Shift the ends back to being starts */
+        int start = 0;
+        for (int[] pathOffsets : offsets) {
+            for (int step = pathOffsets.length - 1; step > 0; step--) {
+                pathOffsets[step] = pathOffsets[step - 1];
+            }
+            pathOffsets[0] = start;
+            start = pathOffsets[pathOffsets.length - 1];
+        }
+    }
+
+    /**
+     * Finds which path's buckets an enemy belongs in.
+     * Enemies that are held in place, or whose polyline doesn't match the current path, aren't bucketed.
+     *
+     * @return The ID of the entrance path, or -1 if the enemy shouldn't be bucketed
+     */
+    static int getBucketPath(EnemyStore store, int slot, int[] pathSizes) {
+        PathComponent path = store.getPath(slot);
+        PathPolyline polyline = store.getPolyline(slot);
+        if (!(path instanceof EntrancePathComponent) || polyline == null) {
+            return -1;
+        }
+        int id = ((EntrancePathComponent) path).getEntranceId();
+        if (id < 0 || id >= pathSizes.length || polyline.size() != pathSizes[id]) {
+            return -1;
+        }
+        int step = store.getStep(slot);
+        return step >= 0 && step < pathSizes[id] ? id : -1;
+    }
+
+    private void addUnbucketed(EntityRef enemy) {
+        if (unbucketedCount == unbucketed.length) {
+            unbucketed = Arrays.copyOf(unbucketed, unbucketedCount * 2);
+        }
+        unbucketed[unbucketedCount++] = enemy;
+    }
+
+    /**
+     * Find the best enemy covered by a targeter.
+     * Only the buckets of covered steps and the enemies not on an entrance path are looked at.
+     *
+     * @param coverage The coverage of the targeter
+     * @param store    The store holding the current position of each enemy
+     * @param ranking  The ranking to order enemies by
+     * @return The enemy with the lowest rank, or the null entity if no enemy is in range
+     */
+    public EntityRef getBest(PathCoverage coverage, EnemyStore store, EnemyRanking ranking) {
+        EntityRef best = EntityRef.NULL;
+        float bestRank = Float.POSITIVE_INFINITY;
+        for (int id = 0; id < Math.min(coverage.pathCount(), offsets.length); id++) {
+            int[] runs = coverage.getIntervals(id);
+            int[] pathOffsets = offsets[id];
+            for (int i = 0; i < runs.length && runs[i] < pathOffsets.length - 1; i += 2) {
+                int last = Math.min(runs[i + 1], pathOffsets.length - 2);
+                for (int index = pathOffsets[runs[i]]; index < pathOffsets[last + 1]; index++) {
+                    if (isInRange(enemies[index], coverage, store)) {
+                        float rank = ranking.rank(enemies[index]);
+                        if (rank < bestRank || best == EntityRef.NULL) {
+                            best = enemies[index];
+                            bestRank = rank;
+                        }
+                    }
+                }
+            }
+        }
+        for (int index = 0; index < unbucketedCount; index++) {
+            if (isInRange(unbucketed[index], coverage, store)) {
+                float rank = ranking.rank(unbucketed[index]);
+                if (rank < bestRank || best == EntityRef.NULL) {
+                    best = unbucketed[index];
+                    bestRank = rank;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks if any enemy could be in range of a targeter.
+     * Every enemy in a covered bucket counts, even if it is out of range, as it is already past the step it would be
+     * noticed at by the {@link CoverageWatchers}.
+     *
+     * @param coverage The coverage of the targeter
+     * @param store    The store holding the current position of each enemy
+     * @return True if there is an enemy on a covered stretch of path, or an enemy off the paths within range
+     */
+    public boolean hasCandidates(PathCoverage coverage, EnemyStore store) {
+        for (int id = 0; id < Math.min(coverage.pathCount(), offsets.length); id++) {
+            int[] runs = coverage.getIntervals(id);
+            int[] pathOffsets = offsets[id];
+            for (int i = 0; i < runs.length && runs[i] < pathOffsets.length - 1; i += 2) {
+                int last = Math.min(runs[i + 1], pathOffsets.length - 2);
+                for (int index = pathOffsets[runs[i]]; index < pathOffsets[last + 1]; index++) {
+                    if (store.getSlot(enemies[index]) != -1) {
+                        return true;
+                    }
+                }
+            }
+        }
+        for (int index = 0; index < unbucketedCount; index++) {
+            if (isInRange(unbucketed[index], coverage, store)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collect every enemy covered by a targeter.
+     *
+     * @param coverage The coverage of the targeter
+     * @param store    The store holding the current position of each enemy
+     * @param output   The collection to add the enemies in range to
+     */
+    public void addCovered(PathCoverage coverage, EnemyStore store, Collection<EntityRef> output) {
+        for (int id = 0; id < Math.min(coverage.pathCount(), offsets.length); id++) {
+            int[] runs = coverage.getIntervals(id);
+            int[] pathOffsets = offsets[id];
+            for (int i = 0; i < runs.length && runs[i] < pathOffsets.length - 1; i += 2) {
+                int last = Math.min(runs[i + 1], pathOffsets.length - 2);
+                for (int index = pathOffsets[runs[i]]; index < pathOffsets[last + 1]; index++) {
+                    if (isInRange(enemies[index], coverage, store)) {
+                        output.add(enemies[index]);
+                    }
+                }
+            }
+        }
+        for (int index = 0; index < unbucketedCount; index++) {
+            if (isInRange(unbucketed[index], coverage, store)) {
+                output.add(unbucketed[index]);
+            }
+        }
+    }
+
+    /**
+     * @return True if the enemy is still in the store, and its position is within the exact range of the coverage
+     */
+    private static boolean isInRange(EntityRef enemy, PathCoverage coverage, EnemyStore store) {
+        int slot = store.getSlot(enemy);
+        return slot != -1 && coverage.contains(store.getX(slot), store.getY(slot), store.getZ(slot));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.towerBlocks.base;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.Set;
+
+/**
+ * Picks the enemies a type of targeter will attack.
+ * <p>
+ * Each targeter system registers one with the {@link TowerManager} for its component, which then calls it directly
+ * during the targeting pass instead of sending an event for every shot.
+ *
+ * @param <T> The type of the targeter component
+ * @see TowerManager#registerSelector(Class, TargetSelector)
+ */
+@FunctionalInterface
+public interface TargetSelector<T extends TowerTargeter> {
+    /**
+     * Select the enemies the targeter should attack.
+     *
+     * @param targeter          The targeter entity
+     * @param position          The position of the targeter. Must not be modified.
+     * @param targeterComponent The targeter component on the targeter
+     * @param targets           The set to add the selected enemies to
+     */
+    void selectTargets(EntityRef targeter, Vector3f position, T targeterComponent, Set<EntityRef> targets);
+}
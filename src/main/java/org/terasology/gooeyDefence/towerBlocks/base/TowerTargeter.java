@@ -93,6 +93,13 @@ public abstract class TowerTargeter implements Component {
 
     public abstract float getMultiplier();
 
+    /**
+     * @return How far away enemies have to be before they can be selected. Negative if any enemy in range can be.
+     */
+    public float getMinimumRange() {
+        return -1;
+    }
+
     public SelectionMethod getSelectionMethod() {
         return selectionMethod;
     }
@@ -23,7 +23,7 @@ import org.terasology.gooeyDefence.EnemyManager;
 import org.terasology.gooeyDefence.components.enemies.GooeyComponent;
 import org.terasology.gooeyDefence.events.combat.ApplyEffectEvent;
 import org.terasology.gooeyDefence.events.health.DamageEntityEvent;
-import org.terasology.logic.delay.DelayManager;
+import org.terasology.gooeyDefence.simulation.SimulationClock;
 import org.terasology.logic.delay.DelayedActionTriggeredEvent;
 import org.terasology.logic.delay.PeriodicActionTriggeredEvent;
 import org.terasology.logic.location.LocationComponent;
@@ -54,7 +54,7 @@ public class FireEffectorSystem extends BaseComponentSystem {
     @In
     private EnemyManager enemyManager;
     @In
-    private DelayManager delayManager;
+    private SimulationClock simulationClock;
     private Random random = new FastRandom();
 
     /**
@@ -68,10 +68,10 @@ public class FireEffectorSystem extends BaseComponentSystem {
     @ReceiveEvent
     public void onApplyEffect(ApplyEffectEvent event, EntityRef entity, FireEffectorComponent effectorComponent) {
         burningEnemies.add(event.getTarget());
-        if (!delayManager.hasPeriodicAction(entity, APPLY_BURN_ID)) {
-            delayManager.addPeriodicAction(entity, APPLY_BURN_ID, BURN_RATE, BURN_RATE);
+        if (!simulationClock.hasPeriodicAction(entity, APPLY_BURN_ID)) {
+            simulationClock.addPeriodicAction(entity, APPLY_BURN_ID, BURN_RATE, BURN_RATE);
         }
-        delayManager.addDelayedAction(event.getTarget(), END_BURN_ID, effectorComponent.getFireDuration());
+        simulationClock.addDelayedAction(event.getTarget(), END_BURN_ID, effectorComponent.getFireDuration());
     }
 
     /**
@@ -98,11 +98,11 @@ public class FireEffectorSystem extends BaseComponentSystem {
                 .collect(Collectors.toSet());
 
         for (EntityRef newEnemy : newEnemies) {
-            delayManager.addDelayedAction(newEnemy, END_BURN_ID, effectorComponent.getFireDuration());
+            simulationClock.addDelayedAction(newEnemy, END_BURN_ID, effectorComponent.getFireDuration());
         }
 
         if (burningEnemies.isEmpty()) {
-            delayManager.cancelPeriodicAction(entity, APPLY_BURN_ID);
+            simulationClock.cancelPeriodicAction(entity, APPLY_BURN_ID);
         }
     }
 
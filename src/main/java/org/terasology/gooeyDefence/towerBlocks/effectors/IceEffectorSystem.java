@@ -44,6 +44,7 @@ public class IceEffectorSystem extends BaseComponentSystem {
         MovementComponent movementComponent = enemy.getComponent(MovementComponent.class);
         double reducedSpeed = movementComponent.getSpeed() * component.getSlow();
         movementComponent.setSpeed((float) reducedSpeed);
+        enemy.saveComponent(movementComponent);
     }
 
     /**
@@ -58,5 +59,6 @@ public class IceEffectorSystem extends BaseComponentSystem {
         EntityRef enemy = event.getTarget();
         MovementComponent movementComponent = enemy.getComponent(MovementComponent.class);
         movementComponent.setSpeed(movementComponent.getSpeed() / component.getSlow());
+        enemy.saveComponent(movementComponent);
     }
 }
@@ -24,7 +24,7 @@ import org.terasology.gooeyDefence.DefenceField;
 import org.terasology.gooeyDefence.components.enemies.GooeyComponent;
 import org.terasology.gooeyDefence.events.combat.ApplyEffectEvent;
 import org.terasology.gooeyDefence.events.health.DamageEntityEvent;
-import org.terasology.logic.delay.DelayManager;
+import org.terasology.gooeyDefence.simulation.SimulationClock;
 import org.terasology.logic.delay.DelayedActionTriggeredEvent;
 import org.terasology.logic.delay.PeriodicActionTriggeredEvent;
 import org.terasology.registry.In;
@@ -54,7 +54,7 @@ public class PoisonEffectorSystem extends BaseComponentSystem {
     private static final String END_POISON_ID = "endPoisonDamage";
 
     @In
-    private DelayManager delayManager;
+    private SimulationClock simulationClock;
     @In
     private EntityManager entityManager;
 
@@ -74,12 +74,12 @@ public class PoisonEffectorSystem extends BaseComponentSystem {
         String endId = buildEventID(END_POISON_ID, entity);
         String applyId = buildEventID(APPLY_POISON_ID, entity);
 
-        if (delayManager.hasDelayedAction(target, endId)) {
-            delayManager.cancelDelayedAction(target, endId);
-            delayManager.addDelayedAction(target, endId, effectorComponent.getPoisonDuration());
+        if (simulationClock.hasDelayedAction(target, endId)) {
+            simulationClock.cancelDelayedAction(target, endId);
+            simulationClock.addDelayedAction(target, endId, effectorComponent.getPoisonDuration());
         } else {
-            delayManager.addPeriodicAction(target, applyId, POISON_RATE, POISON_RATE);
-            delayManager.addDelayedAction(target, endId, effectorComponent.getPoisonDuration());
+            simulationClock.addPeriodicAction(target, applyId, POISON_RATE, POISON_RATE);
+            simulationClock.addDelayedAction(target, endId, effectorComponent.getPoisonDuration());
         }
     }
 
@@ -112,7 +112,7 @@ public class PoisonEffectorSystem extends BaseComponentSystem {
     public void onDelayedActionTriggered(DelayedActionTriggeredEvent event, EntityRef entity, GooeyComponent enemyComponent) {
         if (isEndEvent(event)) {
             EntityRef effector = getEffectorEntity(event.getActionId());
-            delayManager.cancelPeriodicAction(entity, buildEventID(APPLY_POISON_ID, effector));
+            simulationClock.cancelPeriodicAction(entity, buildEventID(APPLY_POISON_ID, effector));
         }
     }
 
@@ -24,7 +24,7 @@ import org.terasology.gooeyDefence.components.enemies.BlankPathComponent;
 import org.terasology.gooeyDefence.components.enemies.GooeyComponent;
 import org.terasology.gooeyDefence.components.enemies.PathComponent;
 import org.terasology.gooeyDefence.events.combat.ApplyEffectEvent;
-import org.terasology.logic.delay.DelayManager;
+import org.terasology.gooeyDefence.simulation.SimulationClock;
 import org.terasology.logic.delay.DelayedActionTriggeredEvent;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Vector3f;
@@ -46,7 +46,7 @@ public class StunEffectorSystem extends BaseComponentSystem {
     private Map<EntityRef, PathComponent> pathStorage = new HashMap<>();
 
     @In
-    private DelayManager delayManager;
+    private SimulationClock simulationClock;
     @In
     private Random random = new FastRandom();
 
@@ -69,7 +69,7 @@ public class StunEffectorSystem extends BaseComponentSystem {
 
             Vector3f position = target.getComponent(LocationComponent.class).getWorldPosition();
             target.addComponent(new BlankPathComponent(new Vector3i(position)));
-            delayManager.addDelayedAction(target, REMOVE_STUN_ID, component.getStunDuration());
+            simulationClock.addDelayedAction(target, REMOVE_STUN_ID, component.getStunDuration());
         }
     }
 
@@ -16,11 +16,11 @@
 package org.terasology.gooeyDefence.towerBlocks.targeters;
 
 import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.gooeyDefence.EnemyManager;
-import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
-import org.terasology.logic.location.LocationComponent;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
+import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
 
 import java.util.Set;
@@ -33,17 +33,21 @@ public class AoeTargeterSystem extends BaseTargeterSystem {
 
     @In
     private EnemyManager enemyManager;
+    @In
+    private TowerManager towerManager;
+
+    @Override
+    public void initialise() {
+        towerManager.registerSelector(AoeTargeterComponent.class, this::selectTargets);
+    }
 
     /**
      * Targets enemies in an aoe around the tower.
-     * <p>
-     * Filters on {@link LocationComponent} and {@link AoeTargeterComponent}.
      *
-     * @see SelectEnemiesEvent
+     * @see TargetSelector
      */
-    @ReceiveEvent
-    public void onSelectEnemies(SelectEnemiesEvent event, EntityRef entity, LocationComponent locationComponent, AoeTargeterComponent targeterComponent) {
-        Set<EntityRef> targets = enemyManager.getEnemiesInRange(locationComponent.getWorldPosition(), targeterComponent.getRange());
-        event.addToList(targets);
+    private void selectTargets(EntityRef targeter, Vector3f position, AoeTargeterComponent targeterComponent,
+                               Set<EntityRef> targets) {
+        targets.addAll(enemyManager.getEnemiesInRange(targeter, position, targeterComponent.getRange()));
     }
 }
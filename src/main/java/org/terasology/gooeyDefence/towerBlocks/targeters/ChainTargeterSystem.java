@@ -17,10 +17,10 @@ package org.terasology.gooeyDefence.towerBlocks.targeters;
 
 import com.google.common.collect.Sets;
 import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.gooeyDefence.EnemyManager;
-import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
@@ -35,27 +35,34 @@ public class ChainTargeterSystem extends BaseTargeterSystem {
 
     @In
     private EnemyManager enemyManager;
+    @In
+    private TowerManager towerManager;
+
+    @Override
+    public void initialise() {
+        towerManager.registerSelector(ChainTargeterComponent.class, this::selectTargets);
+    }
 
     /**
      * Determine which enemies should be attacked.
-     * Called against the targeter entity.
-     * <p>
-     * Filters on {@link LocationComponent} and {@link ChainTargeterComponent}
      *
-     * @see SelectEnemiesEvent
+     * @see TargetSelector
      */
-    @ReceiveEvent
-    public void onSelectEnemies(SelectEnemiesEvent event, EntityRef entity, LocationComponent locationComponent, ChainTargeterComponent targeterComponent) {
-        EntityRef target = getTarget(locationComponent.getWorldPosition(), targeterComponent, enemyManager);
+    private void selectTargets(EntityRef targeter, Vector3f position, ChainTargeterComponent targeterComponent,
+                               Set<EntityRef> targets) {
+        EntityRef target = getTarget(targeter, position, targeterComponent, enemyManager);
 
         if (target.exists()) {
-            event.addToList(chainToNearby(target, targeterComponent.getChainLength(), targeterComponent.getChainRange()));
+            targets.addAll(chainToNearby(target,
+                    targeterComponent.getChainLength(),
+                    targeterComponent.getChainRange()));
         }
         targeterComponent.setLastTarget(target);
     }
 
     /**
      * Chain to nearby enemies from a starting enemy.
+     * Each link is the closest enemy to the start that isn't already in the chain.
      *
      * @param start      The enemy to start chaining from
      * @param maxChain   The maximum number of enemies to chain to.
@@ -67,22 +74,12 @@ public class ChainTargeterSystem extends BaseTargeterSystem {
         Set<EntityRef> result = Sets.newHashSet(start);
 
         for (int i = 0; i < maxChain; i++) {
-            Set<EntityRef> enemies = enemyManager.getEnemiesInRange(position, chainRange);
-            enemies = Sets.difference(enemies, result);
-            if (enemies.isEmpty()) {
+            EntityRef closestEnemy = enemyManager.getNearestEnemy(position, chainRange, result);
+            if (closestEnemy == EntityRef.NULL) {
                 return result;
             }
-            EntityRef closestEnemy = enemies.stream().min((first, second) -> {
-                LocationComponent firstComponent = first.getComponent(LocationComponent.class);
-                LocationComponent secondComponent = second.getComponent(LocationComponent.class);
-                float firstDistance = firstComponent.getWorldPosition().distanceSquared(position);
-                float secondDistance = secondComponent.getWorldPosition().distanceSquared(position);
-                return Float.compare(firstDistance, secondDistance);
-            }).orElse(EntityRef.NULL);
             result.add(closestEnemy);
         }
         return result;
     }
-
-
 }
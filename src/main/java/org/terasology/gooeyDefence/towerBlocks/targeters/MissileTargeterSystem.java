@@ -16,10 +16,10 @@
 package org.terasology.gooeyDefence.towerBlocks.targeters;
 
 import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.gooeyDefence.EnemyManager;
-import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
@@ -38,25 +38,26 @@ public class MissileTargeterSystem extends SniperTargeterSystem {
 
     @In
     private EnemyManager enemyManager;
+    @In
+    private TowerManager towerManager;
+
+    @Override
+    public void initialise() {
+        towerManager.registerSelector(MissileTargeterComponent.class, this::selectTargets);
+    }
 
     /**
      * Determine which enemies should be attacked.
-     * Called against the targeter entity.
-     * <p>
-     * Filters on {@link LocationComponent} and {@link MissileTargeterComponent}
      *
-     * @see SelectEnemiesEvent
+     * @see TargetSelector
      */
-    @ReceiveEvent
-    public void onSelectEnemies(SelectEnemiesEvent event, EntityRef entity, LocationComponent locationComponent, MissileTargeterComponent targeterComponent) {
-
-        Vector3f worldPos = locationComponent.getWorldPosition();
-        EntityRef target = getTarget(worldPos, targeterComponent, enemyManager);
+    private void selectTargets(EntityRef targeter, Vector3f position, MissileTargeterComponent targeterComponent,
+                               Set<EntityRef> targets) {
+        EntityRef target = getTarget(targeter, position, targeterComponent, enemyManager);
 
         if (target.exists()) {
             Vector3f targetPos = target.getComponent(LocationComponent.class).getWorldPosition();
-            Set<EntityRef> targets = enemyManager.getEnemiesInRange(targetPos, targeterComponent.getSplashRange());
-            event.addToList(targets);
+            targets.addAll(enemyManager.getEnemiesInRange(targetPos, targeterComponent.getSplashRange()));
         }
         targeterComponent.setLastTarget(target);
     }
@@ -18,13 +18,15 @@ package org.terasology.gooeyDefence.towerBlocks.targeters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.gooeyDefence.EnemyManager;
-import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
-import org.terasology.logic.location.LocationComponent;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
+import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
 
+import java.util.Set;
+
 /**
  * Targets the first enemy within range.
  * <p>
@@ -39,21 +41,25 @@ public class SingleTargeterSystem extends BaseTargeterSystem {
 
     @In
     protected EnemyManager enemyManager;
+    @In
+    private TowerManager towerManager;
+
+    @Override
+    public void initialise() {
+        towerManager.registerSelector(SingleTargeterComponent.class, this::selectTargets);
+    }
 
     /**
      * Determine which enemies should be attacked.
-     * Called against the targeter entity.
-     * <p>
-     * Filters on {@link LocationComponent} and {@link SingleTargeterComponent}
      *
-     * @see SelectEnemiesEvent
+     * @see TargetSelector
      */
-    @ReceiveEvent
-    public void onDoSelectEnemies(SelectEnemiesEvent event, EntityRef entity, LocationComponent locationComponent, SingleTargeterComponent targeterComponent) {
-        EntityRef target = getTarget(locationComponent.getWorldPosition(), targeterComponent, enemyManager);
+    private void selectTargets(EntityRef targeter, Vector3f position, SingleTargeterComponent targeterComponent,
+                               Set<EntityRef> targets) {
+        EntityRef target = getTarget(targeter, position, targeterComponent, enemyManager);
 
         if (target.exists()) {
-            event.addToList(target);
+            targets.add(target);
         }
         targeterComponent.setLastTarget(target);
     }
@@ -32,6 +32,7 @@ public class SniperTargeterComponent extends TowerTargeter {
         return 2;
     }
 
+    @Override
     public float getMinimumRange() {
         return minimumRange;
     }
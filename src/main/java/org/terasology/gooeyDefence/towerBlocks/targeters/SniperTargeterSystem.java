@@ -15,12 +15,11 @@
  */
 package org.terasology.gooeyDefence.towerBlocks.targeters;
 
-import com.google.common.collect.Sets;
 import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.gooeyDefence.EnemyManager;
-import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
@@ -34,21 +33,24 @@ import java.util.Set;
 public class SniperTargeterSystem extends BaseTargeterSystem {
     @In
     private EnemyManager enemyManager;
+    @In
+    private TowerManager towerManager;
+
+    @Override
+    public void initialise() {
+        towerManager.registerSelector(SniperTargeterComponent.class, this::selectTargets);
+    }
 
     /**
      * Determine which enemies should be attacked.
-     * Called against the targeter entity.
-     * <p>
-     * Filters on {@link LocationComponent} and {@link SniperTargeterComponent}
      *
-     * @see SelectEnemiesEvent
+     * @see TargetSelector
      */
-    @ReceiveEvent
-    public void onSelectEnemies(SelectEnemiesEvent event, EntityRef entity, LocationComponent locationComponent, SniperTargeterComponent targeterComponent) {
-        Vector3f worldPos = locationComponent.getWorldPosition();
-        EntityRef target = getTarget(worldPos, targeterComponent, enemyManager);
+    private void selectTargets(EntityRef targeter, Vector3f position, SniperTargeterComponent targeterComponent,
+                               Set<EntityRef> targets) {
+        EntityRef target = getTarget(targeter, position, targeterComponent, enemyManager);
         if (target.exists()) {
-            event.addToList(target);
+            targets.add(target);
         }
         targeterComponent.setLastTarget(target);
     }
@@ -78,20 +80,22 @@ public class SniperTargeterSystem extends BaseTargeterSystem {
      * Attempts to use the entity that was targeted last round.
      * If that is not possible it picks an enemy in range based on the selection method listed
      *
+     * @param targeter          The targeter entity
      * @param targeterPos       The position of the targeter block
      * @param targeterComponent The targeter component on the targeter
      * @param enemyManager      The enemy manager to use if a new enemy needs to be picked
      * @return A suitable enemy in range, or the null entity if none was found
      */
-    protected EntityRef getTarget(Vector3f targeterPos, SniperTargeterComponent targeterComponent, EnemyManager enemyManager) {
+    protected EntityRef getTarget(EntityRef targeter, Vector3f targeterPos, SniperTargeterComponent targeterComponent,
+                                  EnemyManager enemyManager) {
         EntityRef target = targeterComponent.getLastTarget();
         if (!canUseTarget(target, targeterPos, targeterComponent)) {
-
-            Set<EntityRef> outerEnemies = enemyManager.getEnemiesInRange(targeterPos, targeterComponent.getRange());
-            Set<EntityRef> innerEnemies = enemyManager.getEnemiesInRange(targeterPos, targeterComponent.getMinimumRange());
-            Set<EntityRef> inRangeEnemies = Sets.difference(outerEnemies, innerEnemies);
-
-            target = getSingleTarget(inRangeEnemies, targeterComponent.getSelectionMethod());
+            target = enemyManager.getBestEnemy(
+                    targeter,
+                    targeterPos,
+                    targeterComponent.getMinimumRange(),
+                    targeterComponent.getRange(),
+                    targeterComponent.getSelectionMethod());
         }
         return target;
     }
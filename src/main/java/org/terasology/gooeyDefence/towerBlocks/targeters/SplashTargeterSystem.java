@@ -16,13 +16,16 @@
 package org.terasology.gooeyDefence.towerBlocks.targeters;
 
 import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.gooeyDefence.EnemyManager;
-import org.terasology.gooeyDefence.events.combat.SelectEnemiesEvent;
+import org.terasology.gooeyDefence.TowerManager;
+import org.terasology.gooeyDefence.towerBlocks.base.TargetSelector;
 import org.terasology.logic.location.LocationComponent;
+import org.terasology.math.geom.Vector3f;
 import org.terasology.registry.In;
 
+import java.util.Set;
+
 /**
  * Selects a single target enemy and then targets all enemies within a small range of that enemy.
  */
@@ -31,22 +34,27 @@ public class SplashTargeterSystem extends BaseTargeterSystem {
 
     @In
     private EnemyManager enemyManager;
+    @In
+    private TowerManager towerManager;
+
+    @Override
+    public void initialise() {
+        towerManager.registerSelector(SplashTargeterComponent.class, this::selectTargets);
+    }
 
     /**
      * Determine which enemies should be attacked.
-     * Called against the targeter entity.
-     * <p>
-     * Filters on {@link LocationComponent} and {@link SplashTargeterComponent}
      *
-     * @see SelectEnemiesEvent
+     * @see TargetSelector
      */
-    @ReceiveEvent
-    public void onSelectEnemies(SelectEnemiesEvent event, EntityRef entity, LocationComponent locationComponent, SplashTargeterComponent targeterComponent) {
-        EntityRef target = getTarget(locationComponent.getWorldPosition(), targeterComponent, enemyManager);
+    private void selectTargets(EntityRef targeter, Vector3f position, SplashTargeterComponent targeterComponent,
+                               Set<EntityRef> targets) {
+        EntityRef target = getTarget(targeter, position, targeterComponent, enemyManager);
 
         if (target.exists()) {
             LocationComponent targetLocation = target.getComponent(LocationComponent.class);
-            event.addToList(enemyManager.getEnemiesInRange(targetLocation.getWorldPosition(), targeterComponent.getSplashRange()));
+            Vector3f targetPos = targetLocation.getWorldPosition();
+            targets.addAll(enemyManager.getEnemiesInRange(targetPos, targeterComponent.getSplashRange()));
         }
         targeterComponent.setLastTarget(target);
     }
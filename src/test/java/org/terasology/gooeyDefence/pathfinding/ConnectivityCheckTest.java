@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.geom.Vector3i;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The field has two layers, with open ground everywhere unless a test fills a column.
+ */
+public class ConnectivityCheckTest {
+    private static final int RADIUS = 8;
+    private static final int HEIGHT = 2;
+
+    private OpenFieldMap map;
+    private ConnectivityCheck check;
+
+    @Before
+    public void setup() {
+        map = new OpenFieldMap(RADIUS, HEIGHT);
+        check = new ConnectivityCheck(map.getPlugin(), 0, 0, RADIUS, 0, HEIGHT);
+    }
+
+    @Test
+    public void testPillarIsSafe() {
+        assertTrue(change(map.column(3, 3), false));
+    }
+
+    @Test
+    public void testClosingGapIsNotSafe() {
+        for (int z = -RADIUS; z <= RADIUS; z++) {
+            if (z != 0) {
+                map.setColumn(4, z, false);
+            }
+        }
+        assertFalse(change(map.column(4, 0), false));
+    }
+
+    @Test
+    public void testNarrowingGapIsSafe() {
+        for (int z = -RADIUS; z <= RADIUS; z++) {
+            if (z < -1 || z > 1) {
+                map.setColumn(4, z, false);
+            }
+        }
+        assertTrue(change(map.column(4, 1), false));
+    }
+
+    @Test
+    public void testOpeningIsSafe() {
+        for (int z = -RADIUS; z <= RADIUS; z++) {
+            map.setColumn(4, z, false);
+        }
+        assertTrue(change(map.column(4, 0), true));
+    }
+
+    @Test
+    public void testEndpointInWindow() {
+        List<Vector3i> blocks = map.column(3, 3);
+        assertFalse(check.begin(blocks, Collections.singletonList(new Vector3i(4, 0, 4))));
+    }
+
+    @Test
+    public void testOutsideField() {
+        List<Vector3i> blocks = Collections.singletonList(new Vector3i(RADIUS + 5, 0, 0));
+        assertTrue(check.begin(blocks, Collections.singletonList(new Vector3i(0, 0, 0))));
+        assertTrue(check.isLocallySafe());
+    }
+
+    @Test
+    public void testCanReachAroundWall() {
+        for (int z = -RADIUS; z < RADIUS; z++) {
+            map.setColumn(4, z, false);
+        }
+        assertTrue(check.canReach(new Vector3i(RADIUS, 0, 0), centre(), 1000));
+    }
+
+    @Test
+    public void testCanReachWhenCutOff() {
+        for (int z = -RADIUS; z <= RADIUS; z++) {
+            map.setColumn(4, z, false);
+        }
+        assertFalse(check.canReach(new Vector3i(RADIUS, 0, 0), centre(), 1000));
+    }
+
+    @Test
+    public void testCanReachGivesUpAtLimit() {
+        for (int z = -RADIUS; z < RADIUS; z++) {
+            map.setColumn(4, z, false);
+        }
+        assertFalse(check.canReach(new Vector3i(RADIUS, 0, 0), centre(), 10));
+    }
+
+    private TIntSet centre() {
+        TIntSet goals = new TIntHashSet();
+        goals.add(PackedPath.pack(0, 0, 0));
+        return goals;
+    }
+
+    /**
+     * Run the check around a change to the map, with the centre of the field as the only endpoint.
+     */
+    private boolean change(List<Vector3i> blocks, boolean penetrable) {
+        assertTrue(check.begin(blocks, Collections.singletonList(new Vector3i(0, 0, 0))));
+        map.set(blocks, penetrable);
+        return check.isLocallySafe();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.geom.Vector3i;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The field has two layers, with open ground everywhere unless a test builds a wall.
+ */
+public class FlowFieldTest {
+    private static final int RADIUS = 8;
+    private static final int HEIGHT = 2;
+    private static final Vector3i ENTRANCE = new Vector3i(RADIUS, 0, 0);
+
+    private OpenFieldMap map;
+    private EnemyWalkingPlugin plugin;
+
+    @Before
+    public void setup() {
+        map = new OpenFieldMap(RADIUS, HEIGHT);
+        plugin = map.getPlugin();
+    }
+
+    @Test
+    public void testOpenFieldCosts() {
+        FlowField field = calculatedField();
+        assertEquals(0, field.getCost(new Vector3i(0, 0, 0)));
+        assertEquals(3 * FlowField.STRAIGHT_COST, field.getCost(new Vector3i(3, 0, 0)));
+        assertEquals(2 * FlowField.DIAGONAL_COST + FlowField.STRAIGHT_COST, field.getCost(new Vector3i(3, 0, 2)));
+        assertEquals(FlowField.estimateCost(RADIUS, 0, RADIUS), field.getCost(new Vector3i(RADIUS, 0, RADIUS)));
+    }
+
+    @Test
+    public void testPathFollowsField() {
+        map.buildWall(4, -RADIUS, RADIUS - 2);
+        FlowField field = calculatedField();
+        PackedPath path = field.getPath(ENTRANCE);
+
+        assertEquals(ENTRANCE, path.get(path.size() - 1));
+        assertEquals(new Vector3i(0, 0, 0), path.get(0));
+        map.assertValidPath(path);
+        assertEquals(field.getCost(ENTRANCE), path.getCost());
+    }
+
+    @Test
+    public void testUnreachable() {
+        map.buildWall(4, -RADIUS, RADIUS);
+        FlowField field = calculatedField();
+        assertEquals(FlowField.UNREACHABLE, field.getCost(ENTRANCE));
+        assertTrue(field.getPath(ENTRANCE).isEmpty());
+    }
+
+    @Test
+    public void testRepairAfterPlacement() {
+        FlowField field = calculatedField();
+        List<Vector3i> changed = map.buildWall(4, -RADIUS, RADIUS - 2);
+        field.update(changed);
+        assertMatchesFullCalculation(field);
+    }
+
+    @Test
+    public void testRepairAfterRemoval() {
+        /* The only way through is at the far end of the wall */
+        map.buildWall(4, -RADIUS, RADIUS - 2);
+        FlowField field = calculatedField();
+
+        /* Opening a gap next to the centre gives every cell behind the wall a much cheaper route */
+        map.setColumn(4, 0, true);
+        field.update(Collections.singletonList(new Vector3i(4, 0, 0)));
+        assertMatchesFullCalculation(field);
+    }
+
+    @Test
+    public void testRepairReconnects() {
+        map.buildWall(4, -RADIUS, RADIUS);
+        FlowField field = calculatedField();
+
+        map.setColumn(4, RADIUS, true);
+        field.update(Collections.singletonList(new Vector3i(4, 0, RADIUS)));
+        assertMatchesFullCalculation(field);
+        map.assertValidPath(field.getPath(ENTRANCE));
+    }
+
+    @Test
+    public void testCompleteInSlices() {
+        map.buildWall(4, -RADIUS, RADIUS - 2);
+        /* An entrance next to the centre is reached long before the rest of the field */
+        FlowField field = new FlowField(plugin, RADIUS, 0, HEIGHT, new Vector3i(1, 0, 0));
+        assertTrue(field.calculate());
+        assertFalse(field.complete(0));
+        while (!field.complete(0)) {
+            assertTrue(field.isCalculated());
+        }
+        assertMatchesFullCalculation(field);
+    }
+
+    @Test
+    public void testProvisionalPathAvoidsWalls() {
+        map.buildWall(4, -RADIUS, RADIUS - 2);
+        FlowField field = new FlowField(plugin, RADIUS, 0, HEIGHT, ENTRANCE);
+        field.reset();
+        /* Each resume with no budget settles a single batch of cells */
+        field.resume(0);
+        assertFalse(field.isCalculated());
+
+        PackedPath path = field.getProvisionalPath(ENTRANCE);
+        assertEquals(ENTRANCE, path.get(path.size() - 1));
+        assertEquals(new Vector3i(0, 0, 0), path.get(0));
+        map.assertValidPath(path);
+    }
+
+    @Test
+    public void testProvisionalPathWhenCutOff() {
+        map.buildWall(4, -RADIUS, RADIUS);
+        FlowField field = new FlowField(plugin, RADIUS, 0, HEIGHT, ENTRANCE);
+        field.reset();
+        field.resume(0);
+        assertTrue(field.getProvisionalPath(ENTRANCE).isEmpty());
+    }
+
+    private FlowField calculatedField() {
+        FlowField field = new FlowField(plugin, RADIUS, 0, HEIGHT, ENTRANCE);
+        assertTrue(field.calculate());
+        return field;
+    }
+
+    /**
+     * Checks every cell of a repaired field against a field calculated from scratch.
+     */
+    private void assertMatchesFullCalculation(FlowField repaired) {
+        FlowField expected = calculatedField();
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int z = -RADIUS; z <= RADIUS; z++) {
+                    Vector3i position = new Vector3i(x, y, z);
+                    assertEquals("Cost at " + position, expected.getCost(position), repaired.getCost(position));
+                }
+            }
+        }
+    }
+}
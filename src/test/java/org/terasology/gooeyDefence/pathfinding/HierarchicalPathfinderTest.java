@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.geom.Vector3i;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The field has two layers, with open ground everywhere unless a test builds a wall.
+ * It is wide enough to be split into three sectors along each axis, with the sectors along x covering -20 to -5,
+ * -4 to 11 and 12 to 20.
+ */
+public class HierarchicalPathfinderTest {
+    private static final int RADIUS = 20;
+    private static final int HEIGHT = 2;
+    /**
+     * The first column of the outermost sector along x.
+     */
+    private static final int SECTOR_BORDER = 12;
+    private static final Vector3i ENTRANCE = new Vector3i(RADIUS, 0, 0);
+    /**
+     * How much more a path may cost than the cheapest one.
+     * Portals are only a few cells apart along each border, so paths don't stray far from the cheapest.
+     */
+    private static final int MAX_DETOUR = 4 * FlowField.STRAIGHT_COST;
+
+    private OpenFieldMap map;
+
+    @Before
+    public void setup() {
+        map = new OpenFieldMap(RADIUS, HEIGHT);
+    }
+
+    @Test
+    public void testPathIsValid() {
+        PackedPath path = calculatedPathfinder().getPath(ENTRANCE);
+        assertEquals(ENTRANCE, path.get(path.size() - 1));
+        assertEquals(new Vector3i(0, 0, 0), path.get(0));
+        map.assertValidPath(path);
+    }
+
+    @Test
+    public void testCostsCloseToFlowField() {
+        map.buildWall(4, -RADIUS, RADIUS - 4);
+        HierarchicalPathfinder pathfinder = calculatedPathfinder();
+        for (int x = -RADIUS; x <= RADIUS; x += 3) {
+            for (int z = -RADIUS; z <= RADIUS; z += 3) {
+                if (x == 4) {
+                    continue;
+                }
+                Vector3i start = new Vector3i(x, 0, z);
+                PackedPath path = pathfinder.getPath(start);
+                map.assertValidPath(path);
+                assertCostClose(start, path.getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testWallOnSectorBorder() {
+        map.buildWall(SECTOR_BORDER, -RADIUS, RADIUS - 4);
+        PackedPath path = calculatedPathfinder().getPath(ENTRANCE);
+        map.assertValidPath(path);
+        for (int step = 0; step < path.size(); step++) {
+            if (path.getX(step) == SECTOR_BORDER) {
+                assertTrue(path.getZ(step) > RADIUS - 4);
+            }
+        }
+        assertCostClose(ENTRANCE, path.getCost());
+    }
+
+    @Test
+    public void testUnreachable() {
+        map.buildWall(SECTOR_BORDER, -RADIUS, RADIUS);
+        assertTrue(calculatedPathfinder().getPath(ENTRANCE).isEmpty());
+    }
+
+    @Test
+    public void testRepairAfterPlacement() {
+        HierarchicalPathfinder pathfinder = calculatedPathfinder();
+        List<Vector3i> changed = map.buildWall(SECTOR_BORDER, -RADIUS, RADIUS - 4);
+        pathfinder.update(changed);
+        assertMatchesFullCalculation(pathfinder);
+    }
+
+    @Test
+    public void testRepairAfterRemoval() {
+        map.buildWall(SECTOR_BORDER, -RADIUS, RADIUS - 4);
+        HierarchicalPathfinder pathfinder = calculatedPathfinder();
+
+        map.setColumn(SECTOR_BORDER, 0, true);
+        pathfinder.update(map.column(SECTOR_BORDER, 0));
+        assertMatchesFullCalculation(pathfinder);
+    }
+
+    private HierarchicalPathfinder calculatedPathfinder() {
+        HierarchicalPathfinder pathfinder = new HierarchicalPathfinder(map.getPlugin(), RADIUS, 0, HEIGHT);
+        assertTrue(pathfinder.calculate());
+        return pathfinder;
+    }
+
+    /**
+     * Checks the cost of a path against the cheapest cost found by a flow field.
+     */
+    private void assertCostClose(Vector3i start, int cost) {
+        FlowField field = new FlowField(map.getPlugin(), RADIUS, 0, HEIGHT, start);
+        assertTrue(field.calculate());
+        int cheapest = field.getCost(start);
+        assertTrue("Cost " + cost + " from " + start + " against " + cheapest,
+                cost >= cheapest && cost <= cheapest + MAX_DETOUR);
+    }
+
+    /**
+     * Checks paths from across a repaired pathfinder against one calculated from scratch.
+     */
+    private void assertMatchesFullCalculation(HierarchicalPathfinder repaired) {
+        HierarchicalPathfinder expected = calculatedPathfinder();
+        for (int x = -RADIUS; x <= RADIUS; x += 4) {
+            for (int z = -RADIUS; z <= RADIUS; z += 4) {
+                Vector3i start = new Vector3i(x, 0, z);
+                PackedPath path = repaired.getPath(start);
+                assertTrue("Path from " + start, expected.getPath(start).sameSteps(path));
+            }
+        }
+    }
+}
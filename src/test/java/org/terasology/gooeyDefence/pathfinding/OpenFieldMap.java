@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import org.terasology.math.geom.Vector3i;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * A walkability map for pathfinding tests, centred on the origin with open ground everywhere until a test changes it.
+ * Blocks are placed and removed a column at a time, filling every layer, so that they can't be climbed over.
+ */
+class OpenFieldMap {
+    private final int height;
+    private final WalkabilityMap map;
+    private final EnemyWalkingPlugin plugin;
+
+    /**
+     * @param radius The horizontal distance from the centre to the edge of the map
+     * @param height The number of layers in the map, starting from zero
+     */
+    OpenFieldMap(int radius, int height) {
+        this.height = height;
+        map = new WalkabilityMap(radius, 0, height);
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                setColumn(x, z, true);
+            }
+        }
+        plugin = new EnemyWalkingPlugin(null, map, 0.5f, 0.5f);
+    }
+
+    /**
+     * @return Movement rules reading from the map
+     */
+    EnemyWalkingPlugin getPlugin() {
+        return plugin;
+    }
+
+    void setColumn(int x, int z, boolean penetrable) {
+        for (int y = 0; y < height; y++) {
+            map.set(x, y, z, penetrable);
+        }
+    }
+
+    void set(List<Vector3i> blocks, boolean penetrable) {
+        for (Vector3i block : blocks) {
+            map.set(block.x, block.y, block.z, penetrable);
+        }
+    }
+
+    /**
+     * @return The position of every block in a column
+     */
+    List<Vector3i> column(int x, int z) {
+        List<Vector3i> blocks = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            blocks.add(new Vector3i(x, y, z));
+        }
+        return blocks;
+    }
+
+    /**
+     * Fill a line of columns along the z axis.
+     *
+     * @return The positions of the blocks that changed
+     */
+    List<Vector3i> buildWall(int x, int minZ, int maxZ) {
+        List<Vector3i> changed = new ArrayList<>();
+        for (int z = minZ; z <= maxZ; z++) {
+            setColumn(x, z, false);
+            changed.addAll(column(x, z));
+        }
+        return changed;
+    }
+
+    /**
+     * Checks that the path isn't empty, and that every move along it is allowed by the map.
+     */
+    void assertValidPath(PackedPath path) {
+        assertFalse(path.isEmpty());
+        for (int step = path.size() - 1; step > 0; step--) {
+            Vector3i from = path.get(step);
+            Vector3i to = path.get(step - 1);
+            assertTrue("Move from " + from + " to " + to, plugin.isReachable(to.x, to.y, to.z, from.x, from.y, from.z));
+        }
+    }
+}
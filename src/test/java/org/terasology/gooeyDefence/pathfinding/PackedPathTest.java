@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.pathfinding;
+
+import org.junit.Test;
+import org.terasology.math.geom.Vector3i;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PackedPathTest {
+
+    @Test
+    public void testPackRoundTrip() {
+        int[][] positions = {{0, 0, 0}, {-1, -1, -1}, {1023, 511, -1024}, {-1024, -512, 1023}, {60, 3, -60}};
+        for (int[] position : positions) {
+            int packed = PackedPath.pack(position[0], position[1], position[2]);
+            assertEquals(position[0], PackedPath.unpackX(packed));
+            assertEquals(position[1], PackedPath.unpackY(packed));
+            assertEquals(position[2], PackedPath.unpackZ(packed));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackTooLarge() {
+        PackedPath.pack(1024, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTailTooLong() {
+        new PackedPath(new int[0], line(0, 3), 4);
+    }
+
+    @Test
+    public void testSharedTail() {
+        PackedPath tail = line(0, 5);
+        /* Joins the tail at its third step, then heads off sideways */
+        PackedPath path = new PackedPath(new int[]{PackedPath.pack(2, 0, 1), PackedPath.pack(2, 0, 2)}, tail, 3);
+
+        assertEquals(5, path.size());
+        assertEquals(new Vector3i(0, 0, 0), path.get(0));
+        assertEquals(new Vector3i(2, 0, 0), path.get(2));
+        assertEquals(new Vector3i(2, 0, 1), path.get(3));
+        assertEquals(new Vector3i(2, 0, 2), path.get(4));
+        /* Steps past the join aren't part of the path */
+        assertEquals(-1, path.indexOf(new Vector3i(3, 0, 0)));
+        assertEquals(2, path.indexOf(new Vector3i(2, 0, 0)));
+        assertEquals(4, path.indexOf(PackedPath.pack(2, 0, 2)));
+    }
+
+    @Test
+    public void testIndexOfRepeatedPosition() {
+        int a = PackedPath.pack(0, 0, 0);
+        int b = PackedPath.pack(1, 0, 0);
+        PackedPath path = new PackedPath(new int[]{a, b, a}, null, 0);
+        /* The step closest to the end is kept */
+        assertEquals(0, path.indexOf(a));
+        assertEquals(1, path.indexOf(b));
+    }
+
+    @Test
+    public void testSameSteps() {
+        PackedPath tail = line(0, 5);
+        PackedPath shared = new PackedPath(new int[]{PackedPath.pack(3, 0, 0), PackedPath.pack(4, 0, 0)}, tail, 3);
+        assertTrue(shared.sameSteps(tail));
+        assertTrue(tail.sameSteps(shared));
+        assertFalse(tail.sameSteps(line(0, 4)));
+        assertFalse(tail.sameSteps(line(1, 5)));
+        assertFalse(tail.sameSteps(null));
+        assertTrue(PackedPath.EMPTY.isEmpty());
+    }
+
+    @Test
+    public void testCost() {
+        assertEquals(4 * FlowField.STRAIGHT_COST, line(0, 5).getCost());
+        PackedPath diagonal = new PackedPath(new int[]{PackedPath.pack(0, 0, 0), PackedPath.pack(1, 0, 1)}, null, 0);
+        assertEquals(FlowField.DIAGONAL_COST, diagonal.getCost());
+    }
+
+    @Test
+    public void testPolyline() {
+        PathPolyline polyline = line(0, 5).getPolyline();
+        assertEquals(5, polyline.size());
+        assertEquals(4, polyline.getLength(), 0.0001f);
+        assertEquals(0, PackedPath.EMPTY.size());
+        assertNull(PackedPath.EMPTY.getPolyline());
+    }
+
+    /**
+     * @return A path along the x axis, with step zero at the given start
+     */
+    private static PackedPath line(int start, int length) {
+        int[] steps = new int[length];
+        for (int i = 0; i < length; i++) {
+            steps[i] = PackedPath.pack(start + i, 0, 0);
+        }
+        return new PackedPath(steps, null, 0);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks the grid queries against a search through every enemy.
+ * Some enemies and query positions lie outside the field, where the grid clamps them into the border cells.
+ */
+public class EnemyGridTest {
+    private static final int RADIUS = 20;
+    private static final int ENEMY_COUNT = 300;
+    private static final int QUERY_COUNT = 500;
+
+    private Random random;
+    private EnemyGrid grid;
+    private Map<EntityRef, Vector3f> positions;
+
+    @Before
+    public void setup() {
+        random = new Random(3);
+        grid = new EnemyGrid(RADIUS);
+        positions = new HashMap<>();
+        for (int i = 0; i < ENEMY_COUNT; i++) {
+            EntityRef enemy = mock(EntityRef.class);
+            Vector3f position = randomPosition();
+            positions.put(enemy, position);
+            grid.add(enemy, position);
+        }
+    }
+
+    @Test
+    public void testGetNearest() {
+        for (int query = 0; query < QUERY_COUNT; query++) {
+            Vector3f pos = randomPosition();
+            float range = random.nextFloat() * 30;
+            Set<EntityRef> excluded = new HashSet<>();
+            for (EntityRef enemy : positions.keySet()) {
+                if (random.nextInt(4) == 0) {
+                    excluded.add(enemy);
+                }
+            }
+
+            float expectedSqr = Float.POSITIVE_INFINITY;
+            for (Map.Entry<EntityRef, Vector3f> entry : positions.entrySet()) {
+                float distanceSqr = distanceSquared(entry.getValue(), pos);
+                if (distanceSqr <= range * range && !excluded.contains(entry.getKey())) {
+                    expectedSqr = Math.min(expectedSqr, distanceSqr);
+                }
+            }
+
+            EntityRef nearest = grid.getNearest(pos, range, excluded);
+            if (expectedSqr == Float.POSITIVE_INFINITY) {
+                assertEquals(EntityRef.NULL, nearest);
+            } else {
+                /* Enemies at the same distance are equally good, so only the distance is compared */
+                assertFalse(excluded.contains(nearest));
+                assertEquals(expectedSqr, distanceSquared(positions.get(nearest), pos), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testGetInRange() {
+        for (int query = 0; query < QUERY_COUNT; query++) {
+            Vector3f pos = randomPosition();
+            float range = random.nextFloat() * 15;
+            float minRange = random.nextBoolean() ? -1 : random.nextFloat() * range;
+            Set<EntityRef> expected = new HashSet<>();
+            for (Map.Entry<EntityRef, Vector3f> entry : positions.entrySet()) {
+                float distanceSqr = distanceSquared(entry.getValue(), pos);
+                if (distanceSqr <= range * range && (minRange < 0 || distanceSqr > minRange * minRange)) {
+                    expected.add(entry.getKey());
+                }
+            }
+            assertEquals(expected, grid.getInRange(pos, minRange, range));
+        }
+    }
+
+    @Test
+    public void testMovedEnemy() {
+        EntityRef enemy = positions.keySet().iterator().next();
+        Vector3f far = new Vector3f(RADIUS * 3, 0, RADIUS * 3);
+        grid.update(enemy, far.x, far.y, far.z);
+        positions.put(enemy, far);
+
+        assertEquals(enemy, grid.getNearest(far, 1, Collections.emptySet()));
+        grid.remove(enemy);
+        assertEquals(EntityRef.NULL, grid.getNearest(far, 1, Collections.emptySet()));
+    }
+
+    private Vector3f randomPosition() {
+        float extent = RADIUS + 8;
+        return new Vector3f(
+                (random.nextFloat() * 2 - 1) * extent,
+                random.nextInt(3),
+                (random.nextFloat() * 2 - 1) * extent);
+    }
+
+    private static float distanceSquared(Vector3f a, Vector3f b) {
+        float dx = a.x - b.x;
+        float dy = a.y - b.y;
+        float dz = a.z - b.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.components.enemies.CustomPathComponent;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.gooeyDefence.pathfinding.PathPolyline;
+import org.terasology.math.geom.Vector3f;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that moving enemies doesn't allocate anything per enemy.
+ * <p>
+ * Allocations are counted with the allocated bytes of the thread doing the moving, so the movement is run on a
+ * single thread. The split tasks are the only objects a movement tick may allocate, and there is one pair of those
+ * per split rather than per enemy.
+ */
+public class MovementAllocationTest {
+    private static final int ENEMY_COUNT = 20_000;
+    private static final int PATH_LENGTH = 1000;
+    private static final int WARM_UP_TICKS = 200;
+    private static final int MEASURED_TICKS = 100;
+    private static final float TICK_LENGTH = 0.05f;
+    /**
+     * More than the size of a single split task.
+     */
+    private static final int MAX_TASK_BYTES = 64;
+
+    private EnemyStore store;
+    private ThreadMXBean threads;
+
+    @Before
+    public void setup() {
+        threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        /* A long straight path, so that no enemy reaches the end during the test */
+        int[] steps = new int[PATH_LENGTH];
+        for (int i = 0; i < PATH_LENGTH; i++) {
+            steps[i] = PackedPath.pack(i, 0, 0);
+        }
+        PackedPath path = new PackedPath(steps, null, 0);
+        PathPolyline polyline = path.getPolyline();
+
+        store = new EnemyStore();
+        for (int i = 0; i < ENEMY_COUNT; i++) {
+            Vector3f start = new Vector3f(PATH_LENGTH - 1, 0, 0);
+            store.add(mock(EntityRef.class), start, 0.01f, new CustomPathComponent(path), polyline);
+        }
+    }
+
+    @Test
+    public void testAdvanceDoesNotAllocate() {
+        for (int tick = 0; tick < WARM_UP_TICKS; tick++) {
+            store.advance(0, store.size(), TICK_LENGTH);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int tick = 0; tick < MEASURED_TICKS; tick++) {
+            store.advance(0, store.size(), TICK_LENGTH);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allocated);
+        assertMoved();
+    }
+
+    @Test
+    public void testMovementTaskDoesNotAllocatePerEnemy() {
+        /* A single worker runs every split task itself, so all of the allocations are counted against it */
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            long[] allocated = new long[1];
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    for (int tick = 0; tick < WARM_UP_TICKS; tick++) {
+                        new MovementTask(store, 0, store.size(), TICK_LENGTH).invoke();
+                    }
+
+                    long threadId = Thread.currentThread().getId();
+                    long before = threads.getThreadAllocatedBytes(threadId);
+                    for (int tick = 0; tick < MEASURED_TICKS; tick++) {
+                        new MovementTask(store, 0, store.size(), TICK_LENGTH).invoke();
+                    }
+                    allocated[0] = threads.getThreadAllocatedBytes(threadId) - before;
+                }
+            });
+
+            long bytesPerTick = allocated[0] / MEASURED_TICKS;
+            int taskCount = countTasks(0, store.size());
+            assertTrue("Allocated " + bytesPerTick + " bytes per tick for " + taskCount + " tasks",
+                    bytesPerTick <= taskCount * MAX_TASK_BYTES);
+        } finally {
+            pool.shutdown();
+        }
+        assertMoved();
+    }
+
+    /**
+     * @return The number of tasks a movement tick creates to move the given range of slots
+     */
+    private int countTasks(int from, int to) {
+        if (to - from <= MovementTask.SPLIT_THRESHOLD) {
+            return 1;
+        }
+        int middle = (from + to) >>> 1;
+        return 1 + countTasks(from, middle) + countTasks(middle, to);
+    }
+
+    private void assertMoved() {
+        for (int slot = 0; slot < store.size(); slot++) {
+            assertTrue(store.hasMoved(slot));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.junit.Test;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PathCoverageTest {
+    /**
+     * How many points along each segment are checked against the exact range.
+     */
+    private static final int SAMPLES = 16;
+
+    @Test
+    public void testStraightPath() {
+        PathCoverage coverage = PathCoverage.build(new Vector3f(10, 0, 0), -1, 3, Collections.singletonList(line(20)));
+        /* The segment heading towards step 6 starts at step 7, which is exactly in range */
+        assertArrayEquals(new int[]{6, 13}, coverage.getIntervals(0));
+    }
+
+    @Test
+    public void testMinimumRangeSplitsRuns() {
+        PathCoverage coverage = PathCoverage.build(new Vector3f(10, 2, 0), 2.5f, 4, Collections.singletonList(line(20)));
+        assertArrayEquals(new int[]{6, 8, 11, 13}, coverage.getIntervals(0));
+    }
+
+    @Test
+    public void testMissingPath() {
+        List<PackedPath> paths = Arrays.asList(null, line(5));
+        PathCoverage coverage = PathCoverage.build(new Vector3f(100, 0, 0), -1, 3, paths);
+        assertEquals(2, coverage.pathCount());
+        assertEquals(0, coverage.getIntervals(0).length);
+        assertEquals(0, coverage.getIntervals(1).length);
+    }
+
+    @Test
+    public void testMatches() {
+        List<PackedPath> paths = Collections.singletonList(line(20));
+        Vector3f pos = new Vector3f(10, 0, 0);
+        PathCoverage coverage = PathCoverage.build(pos, -1, 3, paths);
+
+        assertTrue(coverage.matches(new Vector3f(10, 0, 0), -1, 3, new ArrayList<>(paths)));
+        assertFalse(coverage.matches(new Vector3f(10, 1, 0), -1, 3, paths));
+        assertFalse(coverage.matches(pos, 1, 3, paths));
+        assertFalse(coverage.matches(pos, -1, 4, paths));
+        /* Paths are compared by identity, as a new path always means the coverage has to be worked out again */
+        assertFalse(coverage.matches(pos, -1, 3, Collections.singletonList(line(20))));
+    }
+
+    /**
+     * Every point on a segment that is in range must be heading towards a covered step.
+     */
+    @Test
+    public void testCoversEveryPointInRange() {
+        Random random = new Random(42);
+        PackedPath path = randomWalk(random, 200);
+        List<PackedPath> paths = Collections.singletonList(path);
+        for (int targeter = 0; targeter < 50; targeter++) {
+            Vector3f pos = new Vector3f(random.nextInt(30) - 15, random.nextInt(3), random.nextInt(30) - 15);
+            float range = 1 + random.nextFloat() * 8;
+            float minRange = random.nextBoolean() ? -1 : random.nextFloat() * range;
+            PathCoverage coverage = PathCoverage.build(pos, minRange, range, paths);
+
+            for (int step = 0; step < path.size() - 1; step++) {
+                for (int sample = 0; sample <= SAMPLES; sample++) {
+                    float fraction = (float) sample / SAMPLES;
+                    float x = path.getX(step + 1) + (path.getX(step) - path.getX(step + 1)) * fraction;
+                    float y = path.getY(step + 1) + (path.getY(step) - path.getY(step + 1)) * fraction;
+                    float z = path.getZ(step + 1) + (path.getZ(step) - path.getZ(step + 1)) * fraction;
+                    if (coverage.contains(x, y, z)) {
+                        assertTrue("Step " + step + " isn't covered", isCovered(coverage.getIntervals(0), step));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isCovered(int[] intervals, int step) {
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (step >= intervals[i] && step <= intervals[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return A straight path along the x axis, with each step at the x position of its index
+     */
+    static PackedPath line(int length) {
+        int[] steps = new int[length];
+        for (int i = 0; i < length; i++) {
+            steps[i] = PackedPath.pack(i, 0, 0);
+        }
+        return new PackedPath(steps, null, 0);
+    }
+
+    /**
+     * @return A path that wanders around the origin, moving to a random neighbour with each step
+     */
+    static PackedPath randomWalk(Random random, int length) {
+        int[] steps = new int[length];
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        for (int i = 0; i < length; i++) {
+            steps[i] = PackedPath.pack(x, y, z);
+            x = clamp(x + random.nextInt(3) - 1, 15);
+            z = clamp(z + random.nextInt(3) - 1, 15);
+            if (random.nextInt(8) == 0) {
+                y = clamp(y + random.nextInt(3) - 1, 2);
+            }
+        }
+        return new PackedPath(steps, null, 0);
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
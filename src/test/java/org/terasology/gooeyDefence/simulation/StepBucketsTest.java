@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.gooeyDefence.simulation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.gooeyDefence.PathfindingManager;
+import org.terasology.gooeyDefence.components.enemies.CustomPathComponent;
+import org.terasology.gooeyDefence.components.enemies.EntrancePathComponent;
+import org.terasology.gooeyDefence.pathfinding.PackedPath;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the buckets against a search through every enemy in the store.
+ */
+public class StepBucketsTest {
+    private static final int ENEMY_COUNT = 500;
+    private static final int TARGETER_COUNT = 50;
+
+    private Random random;
+    private PackedPath path;
+    private EnemyStore store;
+    private StepBuckets buckets;
+    private EnemyRanking ranking;
+
+    @Before
+    public void setup() {
+        random = new Random(7);
+        path = PathCoverageTest.randomWalk(random, 300);
+        PathfindingManager pathfindingManager = mock(PathfindingManager.class);
+        when(pathfindingManager.getPath(0)).thenReturn(path);
+
+        store = new EnemyStore();
+        for (int i = 0; i < ENEMY_COUNT; i++) {
+            EntityRef enemy = mock(EntityRef.class);
+            if (i % 10 == 0) {
+                /* Enemies that have left the entrance path are only found by their position */
+                Vector3f position = new Vector3f(random.nextInt(30) - 15, 0, random.nextInt(30) - 15);
+                store.add(enemy, position, 1, new CustomPathComponent(path), null);
+            } else {
+                int step = random.nextInt(path.size() - 1);
+                Vector3f position = between(step + 1, step, random.nextFloat());
+                EntrancePathComponent pathComponent = new EntrancePathComponent(0, pathfindingManager, step);
+                store.add(enemy, position, 1, pathComponent, path.getPolyline());
+            }
+        }
+        buckets = new StepBuckets();
+        buckets.rebuild(store, new int[]{path.size()});
+        ranking = enemy -> store.getSlot(enemy);
+    }
+
+    @Test
+    public void testAddCovered() {
+        int found = 0;
+        for (int targeter = 0; targeter < TARGETER_COUNT; targeter++) {
+            PathCoverage coverage = randomCoverage();
+            Set<EntityRef> covered = new HashSet<>();
+            buckets.addCovered(coverage, store, covered);
+            assertEquals(findInRange(coverage), covered);
+            found += covered.size();
+        }
+        assertTrue(found > 0);
+    }
+
+    @Test
+    public void testGetBest() {
+        for (int targeter = 0; targeter < TARGETER_COUNT; targeter++) {
+            PathCoverage coverage = randomCoverage();
+            EntityRef expected = EntityRef.NULL;
+            for (EntityRef enemy : findInRange(coverage)) {
+                if (expected == EntityRef.NULL || ranking.rank(enemy) < ranking.rank(expected)) {
+                    expected = enemy;
+                }
+            }
+            assertEquals(expected, buckets.getBest(coverage, store, ranking));
+        }
+    }
+
+    @Test
+    public void testHasCandidates() {
+        for (int targeter = 0; targeter < TARGETER_COUNT; targeter++) {
+            PathCoverage coverage = randomCoverage();
+            if (!findInRange(coverage).isEmpty()) {
+                assertTrue(buckets.hasCandidates(coverage, store));
+            }
+        }
+        PathCoverage faraway = PathCoverage.build(new Vector3f(500, 0, 500), -1, 3, Collections.singletonList(path));
+        assertFalse(buckets.hasCandidates(faraway, store));
+    }
+
+    @Test
+    public void testRemovedEnemiesSkipped() {
+        PathCoverage everything = PathCoverage.build(new Vector3f(0, 0, 0), -1, 100, Collections.singletonList(path));
+        EntityRef removed = store.getEntity(1);
+        store.remove(removed);
+
+        Set<EntityRef> covered = new HashSet<>();
+        buckets.addCovered(everything, store, covered);
+        assertFalse(covered.contains(removed));
+        assertEquals(store.size(), covered.size());
+    }
+
+    @Test
+    public void testStalePathNotBucketed() {
+        /* A path of a different length means the enemies' polylines no longer match it */
+        buckets.rebuild(store, new int[]{path.size() + 1});
+        PathCoverage everything = PathCoverage.build(new Vector3f(0, 0, 0), -1, 100, Collections.singletonList(path));
+        Set<EntityRef> covered = new HashSet<>();
+        buckets.addCovered(everything, store, covered);
+        assertEquals(store.size(), covered.size());
+    }
+
+    private PathCoverage randomCoverage() {
+        Vector3f pos = new Vector3f(random.nextInt(30) - 15, random.nextInt(3), random.nextInt(30) - 15);
+        float range = 1 + random.nextFloat() * 8;
+        float minRange = random.nextBoolean() ? -1 : random.nextFloat() * range;
+        List<PackedPath> paths = Collections.singletonList(path);
+        return PathCoverage.build(pos, minRange, range, paths);
+    }
+
+    private Set<EntityRef> findInRange(PathCoverage coverage) {
+        Set<EntityRef> result = new HashSet<>();
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (coverage.contains(store.getX(slot), store.getY(slot), store.getZ(slot))) {
+                result.add(store.getEntity(slot));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The position a fraction of the way from one step of the path to another
+     */
+    private Vector3f between(int from, int to, float fraction) {
+        return new Vector3f(
+                path.getX(from) + (path.getX(to) - path.getX(from)) * fraction,
+                path.getY(from) + (path.getY(to) - path.getY(from)) * fraction,
+                path.getZ(from) + (path.getZ(to) - path.getZ(from)) * fraction);
+    }
+}